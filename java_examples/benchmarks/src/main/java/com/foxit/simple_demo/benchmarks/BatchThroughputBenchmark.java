@@ -0,0 +1,147 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a throughput benchmark of the batch execution modes against the stand-in server.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.foxit.simple_demo.client.BatchExecutor;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.OperationRequest;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportMetrics;
+import com.foxit.simple_demo.client.TransportProfile;
+
+import okhttp3.OkHttpClient;
+
+// Pushes N concurrent compress workflows through the client and reports throughput, latency, the
+// connections opened and the share of calls that reused a pooled one, for each execution mode:
+//   batch - one thread per workflow, virtual threads when the JVM has them, else a platform pool
+//   async - the CompletableFuture API, no thread held between polls
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.BatchThroughputBenchmark" -Dexec.args="1000,10000"
+public class BatchThroughputBenchmark {
+
+    private static final int platform_threads = 200;
+    private static final long processing_in_miliseconds = 500;
+    private static final int poll_interval_in_miliseconds = 100;
+    private static final int payload_size = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int[] task_counts = Arrays.stream((args.length > 0 ? args[0] : "1000,10000").split(","))
+                                  .mapToInt(Integer::parseInt).toArray();
+        Path work_dir = Files.createTempDirectory("foxit-batch-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[payload_size]);
+        OperationRequest operation = Operations.compress(input.toString(), "high");
+
+        System.out.printf("java %s, virtual threads: %s%n", System.getProperty("java.version"),
+                          usesVirtualThreads() ? "yes" : "no (platform pool of " + platform_threads + ")");
+        System.out.printf("%-8s %-16s %10s %12s %10s %10s %10s %8s %8s%n",
+                          "tasks", "mode", "seconds", "tasks/s", "p50 ms", "p99 ms", "polls", "conns", "reuse %");
+        for (int task_count : task_counts) {
+            try (StandInServer server = new StandInServer(processing_in_miliseconds, payload_size, 64)) {
+                // one pool for both modes, counted separately
+                OkHttpClient http_client = httpClient();
+                try (BatchExecutor executor = BatchExecutor.create(platform_threads)) {
+                    String mode = executor.usesVirtualThreads() ? "batch-virtual" : "batch-platform";
+                    TransportMetrics metrics = new TransportMetrics();
+                    FoxitCloudClient client = client(server, metrics.attachTo(http_client));
+                    run(task_count, mode, server, metrics,
+                        index -> executor.submit(client, operation, output(work_dir, mode, index)));
+                }
+                TransportMetrics metrics = new TransportMetrics();
+                FoxitCloudClient client = client(server, metrics.attachTo(http_client));
+                run(task_count, "async", server, metrics,
+                    index -> client.runAsync(operation, output(work_dir, "async", index)));
+            }
+        }
+        deleteRecursively(work_dir);
+        System.exit(0);
+    }
+
+    private interface Workflow {
+        CompletableFuture<Path> start(int index);
+    }
+
+    private static FoxitCloudClient client(StandInServer server, OkHttpClient http_client) {
+        return FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+            .baseUrl(server.baseUrl())
+            .httpClient(http_client)
+            .pollInterval(poll_interval_in_miliseconds)
+            .build();
+    }
+
+    private static void run(int task_count, String mode, StandInServer server, TransportMetrics metrics,
+                            Workflow workflow) {
+        long task_requests = server.taskRequests();
+        long[] latencies = new long[task_count];
+        List<CompletableFuture<Path>> futures = new ArrayList<>(task_count);
+        long started = System.nanoTime();
+        for (int index = 0; index < task_count; index++) {
+            int slot = index;
+            long submitted = System.nanoTime();
+            futures.add(workflow.start(index).whenComplete((path, error) -> {
+                latencies[slot] = System.nanoTime() - submitted;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsed = System.nanoTime() - started;
+        task_requests = server.taskRequests() - task_requests;
+
+        // every workflow completed, so every response must have been released
+        metrics.checkReleased();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-8d %-16s %10.2f %12.1f %10d %10d %10d %8d %8.2f%n", task_count, mode,
+                          elapsed / 1e9, task_count / (elapsed / 1e9),
+                          TimeUnit.NANOSECONDS.toMillis(latencies[task_count / 2]),
+                          TimeUnit.NANOSECONDS.toMillis(latencies[(int) (task_count * 0.99)]),
+                          task_requests, metrics.getConnectionsOpened(), metrics.getConnectionReuseRatio() * 100);
+    }
+
+    // The async mode gets as many concurrent calls as the platform pool has threads, so both modes
+    // are limited by the same number of connections rather than by the default dispatcher limits.
+    private static OkHttpClient httpClient() {
+        return Transport.create(TransportProfile.builder()
+                                    .maxRequests(platform_threads)
+                                    .maxRequestsPerHost(platform_threads)
+                                    .maxIdleConnections(platform_threads)
+                                    .build());
+    }
+
+    private static boolean usesVirtualThreads() {
+        try (BatchExecutor executor = BatchExecutor.create(1)) {
+            return executor.usesVirtualThreads();
+        }
+    }
+
+    private static String output(Path work_dir, String mode, int index) {
+        return work_dir.resolve(mode).resolve(index % 100 + "/" + index + ".pdf").toString();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
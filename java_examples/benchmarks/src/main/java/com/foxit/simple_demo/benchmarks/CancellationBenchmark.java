@@ -0,0 +1,111 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of cancelling a large batch.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.CancellationToken;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+import okhttp3.OkHttpClient;
+
+// Starts a batch whose tasks take an hour to process, waits until every document is being polled and
+// cancels it; then does the same while uploads are still in flight on a slow server. Reports how long
+// the cancel took to end the batch, the CPU time the cancelling thread spent on it, the tasks still being
+// polled when it ended, and how long until no call was left running and no task polled. The tasks are
+// left on the timer thread after their runs failed. On a machine with few cores the cancelling
+// thread shares them with the calls it aborts and the stand-in server, which shows in the first figure but
+// not in the second.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.CancellationBenchmark" -Dexec.args="10000"
+public class CancellationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int document_count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Path work_dir = Files.createTempDirectory("foxit-cancellation-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[1024]);
+
+        System.out.printf("%d documents, tasks never complete%n", document_count);
+        System.out.printf("%-10s %10s %10s %14s %14s %10s %14s%n", "phase", "in flight", "failed", "cancel ms",
+                          "cancel cpu ms", "pending", "freed ms");
+        run("polling", false, document_count, input, work_dir);
+        run("uploading", true, document_count, input, work_dir);
+        System.exit(0);
+    }
+
+    private static void run(String name, boolean slow_uploads, int document_count, Path input, Path work_dir)
+            throws Exception {
+        try (StandInServer server = new StandInServer(TimeUnit.HOURS.toMillis(1), 64 * 1024, 256)) {
+            if (slow_uploads) server.limitSubmits(Integer.MAX_VALUE, 60000);
+            OkHttpClient http_client = Transport.create(TransportProfile.builder().maxRequests(512)
+                                                                        .maxRequestsPerHost(512).build());
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(http_client))
+                .build();
+            Path output_dir = work_dir.resolve(name);
+            CancellationToken token = new CancellationToken();
+            CompletableFuture<BatchSummary> batch = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return BatchRunner.builder(client)
+                        .uploadConcurrency(slow_uploads ? 256 : 64)
+                        .pollConcurrency(document_count)
+                        .skipExisting(false)
+                        .build()
+                        .run(IntStream.range(0, document_count)
+                             .mapToObj(index -> BatchRunner.Item.of(Operations.compress(input.toString(), "high"),
+                                                                    output_dir.resolve(index + ".pdf").toString()))
+                             .iterator(), token);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            // every document polled, or as many uploads in flight as allowed
+            long in_flight;
+            do {
+                Thread.sleep(50);
+                in_flight = slow_uploads ? http_client.dispatcher().runningCallsCount()
+                                         : client.engine().getPendingTaskCount();
+            } while (in_flight < (slow_uploads ? 256 : document_count));
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long started = System.nanoTime();
+            long started_cpu = threads.getCurrentThreadCpuTime();
+            token.cancel();
+            double cancel_cpu_miliseconds = (threads.getCurrentThreadCpuTime() - started_cpu) / 1e6;
+            BatchSummary summary = batch.get();
+            double cancel_miliseconds = (System.nanoTime() - started) / 1e6;
+            int pending = client.engine().getPendingTaskCount();
+            // the threads of aborted calls may still be unwinding, and the tasks being left
+            while ((http_client.dispatcher().runningCallsCount() > 0 || client.engine().getPendingTaskCount() > 0)
+                   && System.nanoTime() - started < 10_000_000_000L) {
+                Thread.sleep(1);
+            }
+            double freed_miliseconds = (System.nanoTime() - started) / 1e6;
+            System.out.printf("%-10s %10d %10d %14.1f %14.1f %10d %14.1f%n", name, in_flight, summary.getFailed(),
+                              cancel_miliseconds, cancel_cpu_miliseconds, pending, freed_miliseconds);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of the circuit breaker with one sick endpoint.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.CircuitBreaker;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.OperationRequest;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+// Runs a batch that alternates compress and convert while every convert submission hangs for a second
+// and then fails, without and with a circuit breaker, and reports how many uploads went to the sick
+// endpoint, how long the batch took and the throughput of the healthy compress documents.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.CircuitBreakerBenchmark" -Dexec.args="1000"
+public class CircuitBreakerBenchmark {
+
+    private static final long hang_in_miliseconds = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int document_count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Path work_dir = Files.createTempDirectory("foxit-circuit-breaker-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[256 * 1024]);
+
+        System.out.printf("%d documents, half of them to document/convert, which hangs %d ms and fails%n",
+                          document_count, hang_in_miliseconds);
+        System.out.printf("%-10s %10s %10s %16s %10s %14s%n", "breaker", "succeeded", "failed", "convert uploads",
+                          "seconds", "compress/s");
+        run("none", null, input, work_dir, document_count);
+        run("breaker", CircuitBreaker.builder().openDuration(2000).build(), input, work_dir, document_count);
+        System.exit(0);
+    }
+
+    private static void run(String name, CircuitBreaker circuit_breaker, Path input, Path work_dir,
+                            int document_count) throws Exception {
+        try (StandInServer server = new StandInServer(100, 300, 1024, 128)) {
+            server.degrade("document/convert", hang_in_miliseconds);
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(Transport.create(TransportProfile.builder().maxRequests(512)
+                                                                          .maxRequestsPerHost(512).build())))
+                .circuitBreaker(circuit_breaker)
+                .build();
+            BatchSummary summary = BatchRunner.builder(client)
+                .uploadConcurrency(32)
+                .skipExisting(false)
+                .build()
+                .run(IntStream.range(0, document_count).mapToObj(index -> {
+                    OperationRequest operation = index % 2 == 0 ? Operations.compress(input.toString(), "high")
+                                                 : Operations.convert(input.toString(), "word", "{}");
+                    return BatchRunner.Item.of(operation, work_dir.resolve(name).resolve(index + ".pdf").toString());
+                }).iterator());
+            double seconds = summary.getElapsedMiliseconds() / 1000.0;
+            System.out.printf("%-10s %10d %10d %16d %10.1f %14.1f%n", name, summary.getSucceeded(),
+                              summary.getFailed(), server.submitRequests("document/convert"), seconds,
+                              summary.getSucceeded() / seconds);
+            if (circuit_breaker != null) System.out.println("  " + circuit_breaker);
+        }
+    }
+}
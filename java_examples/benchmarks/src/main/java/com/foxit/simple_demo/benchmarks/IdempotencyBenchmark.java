@@ -0,0 +1,113 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of rerunning a batch whose documents partly failed.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.RetryPolicy;
+import com.foxit.simple_demo.client.TaskJournal;
+import com.foxit.simple_demo.client.Transport;
+
+// Runs a batch against a server that fails 20% of status and download requests, without retries, so
+// that some documents fail after their task was created. Then reruns the batch once the server is
+// healthy: on the same client with a journal in memory, on a new client as after a restart, and on a new
+// client reopening a persistent TaskJournal. Reports how many documents the rerun uploaded again and how many tasks the
+// server got twice for the same input; the rerun on the same client or journal re-attaches instead.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.IdempotencyBenchmark" -Dexec.args="1000"
+public class IdempotencyBenchmark {
+
+    private static final double failure_ratio = 0.2;
+
+    public static void main(String[] args) throws Exception {
+        int document_count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Path work_dir = Files.createTempDirectory("foxit-idempotency-benchmark");
+        List<Path> inputs = new ArrayList<>();
+        for (int index = 0; index < document_count; index++) {
+            // every input different, so that each has a key of its own
+            byte[] content = new byte[1024];
+            ByteBuffer.wrap(content).putInt(index);
+            Path input = work_dir.resolve("input-" + index + ".pdf");
+            Files.write(input, content);
+            inputs.add(input);
+        }
+
+        System.out.printf("%d documents, %.0f%% of status and download requests fail on the first run%n",
+                          document_count, failure_ratio * 100);
+        System.out.printf("%-16s %10s %14s %16s %14s%n", "rerun on", "failed", "rerun uploads", "duplicate tasks",
+                          "rerun failed");
+        run("same client", false, false, inputs, work_dir);
+        run("new client", true, false, inputs, work_dir);
+        run("new + journal", true, true, inputs, work_dir);
+        System.exit(0);
+    }
+
+    private static void run(String name, boolean restart, boolean persistent, List<Path> inputs, Path work_dir)
+            throws Exception {
+        Path output_dir = work_dir.resolve(name.replace(' ', '-'));
+        Path journal_file = output_dir.resolve("tasks.journal");
+        try (StandInServer server = new StandInServer(50, 150, 16 * 1024, 64)) {
+            server.injectFaults(failure_ratio, 0, 0);
+            // the rerun on the same client is matched by a journal in memory
+            TaskJournal journal = persistent ? TaskJournal.open(journal_file)
+                                  : restart ? null : TaskJournal.inMemory(TaskJournal.default_max_tasks);
+            FoxitCloudClient client = newClient(server, journal);
+            BatchSummary first = runBatch(client, inputs, output_dir);
+
+            server.injectFaults(0, 0, 0);
+            if (restart) {
+                if (journal != null) {
+                    journal.close();
+                    journal = TaskJournal.open(journal_file);
+                }
+                client = newClient(server, journal);
+            }
+            long submits = server.submitRequests();
+            BatchSummary rerun = runBatch(client, inputs, output_dir);
+            System.out.printf("%-16s %10d %14d %16d %14d%n", name, first.getFailed(),
+                              server.submitRequests() - submits, server.duplicateSubmits(), rerun.getFailed());
+            if (journal != null) journal.close();
+        }
+    }
+
+    private static FoxitCloudClient newClient(StandInServer server, TaskJournal journal) {
+        FoxitCloudClient.Builder builder = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+            .baseUrl(server.baseUrl())
+            .httpClient(server.meter(Transport.shared()))
+            .retryPolicy(RetryPolicy.none);
+        if (journal != null) builder.journal(journal);
+        return builder.build();
+    }
+
+    // Documents whose result is already there are skipped, so a rerun only runs those that failed.
+    private static BatchSummary runBatch(FoxitCloudClient client, List<Path> inputs, Path output_dir)
+            throws InterruptedException {
+        return BatchRunner.builder(client)
+            .uploadConcurrency(32)
+            .downloadConcurrency(32)
+            .resume(false)
+            .build()
+            .run(inputs.stream()
+                 .map(input -> BatchRunner.Item.of(Operations.compress(input.toString(), "high"),
+                                                   output_dir.resolve(input.getFileName()).toString()))
+                 .iterator());
+    }
+}
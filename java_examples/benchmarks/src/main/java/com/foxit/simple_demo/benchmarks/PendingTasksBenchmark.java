@@ -0,0 +1,73 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of many pending tasks polled through one client.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.PollMetrics;
+import com.foxit.simple_demo.client.TaskEngine;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+// Waits on N tasks already created on the stand-in server, a tenth of them by two callers at once,
+// and reports how long they took, the peak number of live threads and the status requests sent.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.PendingTasksBenchmark" -Dexec.args="50000"
+public class PendingTasksBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int task_count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        try (StandInServer server = new StandInServer(5000, 20000, 16, 32)) {
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(Transport.create(TransportProfile.builder().maxRequests(64)
+                                                                          .maxRequestsPerHost(64).build())))
+                .maxConcurrentPolls(64)
+                .build();
+            TaskEngine engine = client.engine();
+
+            AtomicInteger peak_threads = new AtomicInteger(Thread.activeCount());
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> peak_threads.accumulateAndGet(Thread.activeCount(), Math::max),
+                                        0, 100, TimeUnit.MILLISECONDS);
+
+            long started = System.nanoTime();
+            List<CompletableFuture<String>> waiters = new ArrayList<>(task_count + task_count / 10);
+            int peak_pending = 0;
+            for (int index = 0; index < task_count; index++) {
+                String task_id = server.createTask();
+                waiters.add(engine.pollForDocIdAsync(task_id));
+                if (index % 10 == 0) {
+                    waiters.add(engine.pollForDocIdAsync(task_id));
+                }
+            }
+            peak_pending = engine.getPendingTaskCount();
+            CompletableFuture.allOf(waiters.toArray(new CompletableFuture[0])).join();
+            long elapsed = System.nanoTime() - started;
+            sampler.shutdownNow();
+
+            PollMetrics metrics = engine.getPollMetrics();
+            System.out.printf("tasks=%d waiters=%d pending at peak=%d seconds=%.1f peak threads=%d%n",
+                              task_count, waiters.size(), peak_pending, elapsed / 1e9, peak_threads.get());
+            System.out.printf("status requests=%d (%s)%n", server.taskRequests(), metrics);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark comparing fixed and adaptive polling against the stand-in server.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.PollMetrics;
+import com.foxit.simple_demo.client.PollStrategy;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+import okhttp3.OkHttpClient;
+
+// Runs the same mix of short and long tasks with the original fixed 2 s interval and with the
+// adaptive strategy, and reports end-to-end latency and how many status requests each task needed.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.PollStrategyBenchmark" -Dexec.args="500"
+public class PollStrategyBenchmark {
+
+    private static final long min_processing_in_miliseconds = 300;
+    private static final long max_processing_in_miliseconds = 8000;
+
+    public static void main(String[] args) throws Exception {
+        int task_count = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        Path work_dir = Files.createTempDirectory("foxit-poll-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[1024]);
+
+        System.out.printf("%d tasks, processing %d-%d ms%n", task_count,
+                          min_processing_in_miliseconds, max_processing_in_miliseconds);
+        System.out.printf("%-10s %10s %10s %10s %12s %10s%n", "strategy", "p50 ms", "p99 ms", "polls", "polls/task", "wasted");
+        try (StandInServer server = new StandInServer(min_processing_in_miliseconds, max_processing_in_miliseconds,
+                                                      1024, 16)) {
+            run("fixed", PollStrategy.fixed(2000), server, input, work_dir, task_count);
+            run("adaptive", PollStrategy.adaptive(), server, input, work_dir, task_count);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String name, PollStrategy strategy, StandInServer server, Path input, Path work_dir,
+                            int task_count) {
+        FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+            .baseUrl(server.baseUrl())
+            .httpClient(server.meter(httpClient()))
+            .pollStrategy(strategy)
+            .build();
+        long[] latencies = new long[task_count];
+        List<CompletableFuture<Path>> futures = new ArrayList<>(task_count);
+        for (int index = 0; index < task_count; index++) {
+            int slot = index;
+            long submitted = System.nanoTime();
+            String output = work_dir.resolve(name).resolve(index + ".pdf").toString();
+            futures.add(client.compressAsync(input.toString(), "high", output).whenComplete((path, error) -> {
+                latencies[slot] = System.nanoTime() - submitted;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        Arrays.sort(latencies);
+        PollMetrics metrics = client.engine().getPollMetrics();
+        System.out.printf("%-10s %10d %10d %10d %12.2f %10d%n", name,
+                          TimeUnit.NANOSECONDS.toMillis(latencies[task_count / 2]),
+                          TimeUnit.NANOSECONDS.toMillis(latencies[(int) (task_count * 0.99)]),
+                          metrics.getPolls(), metrics.getPolls() / (double) task_count, metrics.getWastedPolls());
+    }
+
+    // Enough concurrent calls that status requests are not queued behind each other in the dispatcher.
+    private static OkHttpClient httpClient() {
+        return Transport.create(TransportProfile.builder().maxRequests(256).maxRequestsPerHost(256).build());
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of retries and hedged downloads against a flaky server.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.RetryPolicy;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+// Runs a batch against a server that answers 2% of status and download requests with 503 and stalls 3%
+// of downloads for a second: without retries, with the default RetryPolicy, and with retries and hedged
+// downloads. Reports documents that failed, download latency and end-to-end p99.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.RetryBenchmark" -Dexec.args="2000"
+public class RetryBenchmark {
+
+    private static final double failure_ratio = 0.02;
+    private static final double stall_ratio = 0.03;
+    private static final long stall_in_miliseconds = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int document_count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Path work_dir = Files.createTempDirectory("foxit-retry-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[1024]);
+
+        System.out.printf("%d documents, %.0f%% of requests fail, %.0f%% of downloads stall %d ms%n", document_count,
+                          failure_ratio * 100, stall_ratio * 100, stall_in_miliseconds);
+        System.out.printf("%-10s %10s %10s %14s %14s %10s%n", "mode", "succeeded", "failed", "download p99",
+                          "document p99", "requests");
+        run("none", RetryPolicy.none, false, input, work_dir, document_count);
+        run("retry", RetryPolicy.defaults(), false, input, work_dir, document_count);
+        run("hedged", RetryPolicy.defaults(), true, input, work_dir, document_count);
+        System.exit(0);
+    }
+
+    private static void run(String name, RetryPolicy retry_policy, boolean hedge_downloads, Path input, Path work_dir,
+                            int document_count) throws Exception {
+        try (StandInServer server = new StandInServer(100, 300, 64 * 1024, 64)) {
+            server.injectFaults(failure_ratio, stall_ratio, stall_in_miliseconds);
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(Transport.create(TransportProfile.builder().maxRequests(512)
+                                                                          .maxRequestsPerHost(512).build())))
+                .retryPolicy(retry_policy)
+                .hedgeDownloads(hedge_downloads)
+                .build();
+            BatchSummary summary = BatchRunner.builder(client)
+                .uploadConcurrency(32)
+                .downloadConcurrency(32)
+                .skipExisting(false)
+                .build()
+                .run(IntStream.range(0, document_count)
+                     .mapToObj(index -> BatchRunner.Item.of(Operations.compress(input.toString(), "high"),
+                                                            work_dir.resolve(name).resolve(index + ".pdf").toString()))
+                     .iterator());
+            System.out.printf("%-10s %10d %10d %14d %14d %10d%n", name, summary.getSucceeded(), summary.getFailed(),
+                              summary.getDownloadLatency().getPercentile(0.99), summary.getLatency().getPercentile(0.99),
+                              server.submitRequests() + server.taskRequests() + server.downloadRequests());
+            System.out.println("  " + client.engine().getRetryMetrics());
+        }
+    }
+}
@@ -0,0 +1,303 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a local stand-in for the Foxit Cloud API used by the benchmarks.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.foxit.simple_demo.client.TransportMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.OkHttpClient;
+
+// Speaks just enough of the task workflow for the client: every "document/*" upload creates a task
+// that reaches 100 percent after a processing time drawn uniformly from [min, max] miliseconds, "/task" reports its progress and
+// "/download" returns payload_size bytes. Signatures are not checked.
+//
+// Clients made with meter() are checked for leaked responses when the server is closed: close() fails
+// if one of their calls still holds its response once the benchmark is done.
+public final class StandInServer implements AutoCloseable {
+
+    static {
+        // Without TCP_NODELAY every small response waits for the client's delayed ACK, adding ~40 ms per request.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long min_processing_in_nanos;
+    private final long max_processing_in_nanos;
+    private final byte[] payload;
+    // taskId -> {submitted at, processing time} in nanos
+    private final Map<String, long[]> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong task_count = new AtomicLong();
+    private final AtomicLong submit_requests = new AtomicLong();
+    private final AtomicLong task_requests = new AtomicLong();
+    private final AtomicLong download_requests = new AtomicLong();
+    // submissions handled at once beyond which the server answers 429, unlimited by default
+    private volatile int submit_capacity = Integer.MAX_VALUE;
+    private volatile long submit_service_in_miliseconds;
+    private final AtomicInteger submits_in_progress = new AtomicInteger();
+    private final AtomicLong rejected_submits = new AtomicLong();
+    // share of status and download requests answered 503, and of downloads that stall before answering
+    private volatile double failure_ratio;
+    private volatile double stall_ratio;
+    private volatile long stall_in_miliseconds;
+    // endpoint -> miliseconds its submissions hang before failing
+    private final Map<String, Long> degraded_endpoints = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> submits_by_endpoint = new ConcurrentHashMap<>();
+    // share of status requests that hang before answering, and of tasks that never complete
+    private volatile double status_stall_ratio;
+    private volatile long status_stall_in_miliseconds;
+    private volatile double stuck_ratio;
+    // idempotency keys of the submissions seen so far
+    private final Map<String, Boolean> submitted_keys = new ConcurrentHashMap<>();
+    private final AtomicLong duplicate_submits = new AtomicLong();
+    private final TransportMetrics metrics = new TransportMetrics();
+
+    public StandInServer(long processing_in_miliseconds, int payload_size, int server_threads) throws IOException {
+        this(processing_in_miliseconds, processing_in_miliseconds, payload_size, server_threads);
+    }
+
+    public StandInServer(long min_processing_in_miliseconds, long max_processing_in_miliseconds, int payload_size,
+                         int server_threads) throws IOException {
+        this.min_processing_in_nanos = TimeUnit.MILLISECONDS.toNanos(min_processing_in_miliseconds);
+        this.max_processing_in_nanos = TimeUnit.MILLISECONDS.toNanos(max_processing_in_miliseconds);
+        this.payload = new byte[payload_size];
+        this.executor = Executors.newFixedThreadPool(server_threads);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.createContext("/api/document/", this::submit);
+        server.createContext("/api/task", this::taskInfo);
+        server.createContext("/api/download", this::download);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    public long submitRequests() {
+        return submit_requests.get();
+    }
+
+    public long taskRequests() {
+        return task_requests.get();
+    }
+
+    public long downloadRequests() {
+        return download_requests.get();
+    }
+
+    // Makes every submission take service_in_miliseconds of server work, and rejects with 429 those that
+    // arrive while capacity others are being handled, like an API enforcing a per-client quota.
+    public void limitSubmits(int capacity, long service_in_miliseconds) {
+        this.submit_capacity = capacity;
+        this.submit_service_in_miliseconds = service_in_miliseconds;
+    }
+
+    // Submissions whose Idempotency-Key header repeated that of an earlier one, i.e. tasks created twice
+    // for the same input. The server does not deduplicate them.
+    public long duplicateSubmits() {
+        return duplicate_submits.get();
+    }
+
+    public long rejectedSubmits() {
+        return rejected_submits.get();
+    }
+
+    // Makes every submission to endpoint, e.g. "document/convert", hang for hang_in_miliseconds and then
+    // fail with 503, like a sick backend behind one operation.
+    public void degrade(String endpoint, long hang_in_miliseconds) {
+        degraded_endpoints.put(endpoint, hang_in_miliseconds);
+    }
+
+    public long submitRequests(String endpoint) {
+        AtomicLong count = submits_by_endpoint.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    // Answers a random failure_ratio of status and download requests with 503, and makes a random
+    // stall_ratio of downloads wait stall_in_miliseconds before answering, like a flaky backend.
+    public void injectFaults(double failure_ratio, double stall_ratio, long stall_in_miliseconds) {
+        this.failure_ratio = failure_ratio;
+        this.stall_ratio = stall_ratio;
+        this.stall_in_miliseconds = stall_in_miliseconds;
+    }
+
+    // Makes a random stall_ratio of status requests hang for stall_in_miliseconds before answering.
+    public void stallStatus(double stall_ratio, long stall_in_miliseconds) {
+        this.status_stall_ratio = stall_ratio;
+        this.status_stall_in_miliseconds = stall_in_miliseconds;
+    }
+
+    // Makes a random stuck_ratio of new tasks stay at 0 percent forever.
+    public void stickTasks(double stuck_ratio) {
+        this.stuck_ratio = stuck_ratio;
+    }
+
+    // A view of the client whose calls are checked for leaked responses by close().
+    public OkHttpClient meter(OkHttpClient client) {
+        return metrics.attachTo(client);
+    }
+
+    @Override
+    public void close() {
+        try {
+            metrics.awaitReleased(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    // Registers a task as if a document had been uploaded, for benchmarks that only exercise polling.
+    public String createTask() {
+        String task_id = Long.toString(task_count.incrementAndGet());
+        long processing = min_processing_in_nanos == max_processing_in_nanos ? min_processing_in_nanos
+                          : ThreadLocalRandom.current().nextLong(min_processing_in_nanos, max_processing_in_nanos);
+        if (stuck_ratio > 0 && ThreadLocalRandom.current().nextDouble() < stuck_ratio) {
+            processing = Long.MAX_VALUE;
+        }
+        tasks.put(task_id, new long[] {System.nanoTime(), processing});
+        return task_id;
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        submit_requests.incrementAndGet();
+        drain(exchange.getRequestBody());
+        String endpoint = exchange.getRequestURI().getPath().substring("/api/".length());
+        submits_by_endpoint.computeIfAbsent(endpoint, ignored -> new AtomicLong()).incrementAndGet();
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key != null && submitted_keys.putIfAbsent(key, Boolean.TRUE) != null) {
+            duplicate_submits.incrementAndGet();
+        }
+        Long hang = degraded_endpoints.get(endpoint);
+        if (hang != null) {
+            try {
+                Thread.sleep(hang);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 503, "{\"code\":503,\"data\":{\"detail\":\"Service unavailable\"}}");
+            return;
+        }
+        try {
+            if (submits_in_progress.incrementAndGet() > submit_capacity) {
+                rejected_submits.incrementAndGet();
+                respond(exchange, 429, "{\"code\":429,\"data\":{\"detail\":\"Too many requests\"}}");
+                return;
+            }
+            if (submit_service_in_miliseconds > 0) {
+                Thread.sleep(submit_service_in_miliseconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            submits_in_progress.decrementAndGet();
+        }
+        String task_id = createTask();
+        respond(exchange, 200, "{\"code\":0,\"msg\":\"success\",\"data\":{\"taskInfo\":{\"taskId\":\"" + task_id + "\"}}}");
+    }
+
+    private void taskInfo(HttpExchange exchange) throws IOException {
+        task_requests.incrementAndGet();
+        if (failed(exchange)) return;
+        if (status_stall_ratio > 0 && ThreadLocalRandom.current().nextDouble() < status_stall_ratio) {
+            try {
+                Thread.sleep(status_stall_in_miliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String task_id = queryParameter(exchange, "taskId");
+        long[] task = task_id == null ? null : tasks.get(task_id);
+        if (task == null) {
+            respond(exchange, 400, "{\"code\":1,\"data\":{\"detail\":\"The task does not exist\"}}");
+            return;
+        }
+        long elapsed = System.nanoTime() - task[0];
+        if (elapsed < task[1]) {
+            int percentage = (int) (elapsed * 100 / task[1]);
+            respond(exchange, 200, "{\"code\":0,\"data\":{\"taskInfo\":{\"taskId\":\"" + task_id
+                                   + "\",\"percentage\":" + percentage + "}}}");
+        } else {
+            respond(exchange, 200, "{\"code\":0,\"data\":{\"taskInfo\":{\"taskId\":\"" + task_id
+                                   + "\",\"percentage\":100,\"docId\":\"doc-" + task_id + "\"}}}");
+        }
+    }
+
+    private void download(HttpExchange exchange) throws IOException {
+        download_requests.incrementAndGet();
+        if (failed(exchange)) return;
+        if (stall_ratio > 0 && ThreadLocalRandom.current().nextDouble() < stall_ratio) {
+            try {
+                Thread.sleep(stall_in_miliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(payload);
+        }
+    }
+
+    private boolean failed(HttpExchange exchange) throws IOException {
+        if (failure_ratio <= 0 || ThreadLocalRandom.current().nextDouble() >= failure_ratio) return false;
+        drain(exchange.getRequestBody());
+        respond(exchange, 503, "{\"code\":503,\"data\":{\"detail\":\"Service unavailable\"}}");
+        return true;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private static void drain(InputStream input) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (input.read(buffer) != -1) {
+            // discard the uploaded document
+        }
+        input.close();
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+}
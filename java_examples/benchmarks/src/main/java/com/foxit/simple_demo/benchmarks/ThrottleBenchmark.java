@@ -0,0 +1,84 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of the client-side throttle against a server with a quota.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.Throttle;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+// Pushes a batch with 64 concurrent uploads at a server that handles only a few submissions at once and
+// answers 429 to the rest, without a throttle, with the adaptive concurrency limit and with a token bucket
+// set just below the server's capacity, and reports how many documents got through, how many submissions
+// were rejected and the throughput.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.ThrottleBenchmark" -Dexec.args="2000,8"
+public class ThrottleBenchmark {
+
+    private static final int upload_concurrency = 64;
+    private static final long submit_service_in_miliseconds = 20;
+
+    public static void main(String[] args) throws Exception {
+        String[] values = args.length > 0 ? args[0].split(",") : new String[0];
+        int document_count = values.length > 0 ? Integer.parseInt(values[0]) : 2000;
+        int capacity = values.length > 1 ? Integer.parseInt(values[1]) : 8;
+        Path work_dir = Files.createTempDirectory("foxit-throttle-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[1024]);
+
+        System.out.printf("%d documents, %d uploads in flight, server capacity %d submissions of %d ms%n",
+                          document_count, upload_concurrency, capacity, submit_service_in_miliseconds);
+        System.out.printf("%-10s %10s %10s %10s %12s %10s%n", "throttle", "succeeded", "failed", "rejected",
+                          "documents/s", "p99 ms");
+        run("none", null, capacity, input, work_dir, document_count);
+        run("adaptive", Throttle.builder().adaptiveConcurrency(4, 1, upload_concurrency).build(), capacity, input,
+            work_dir, document_count);
+        // paced at 90% of what the server can take, as when the quota is known
+        double capacity_per_second = capacity * 1000.0 / submit_service_in_miliseconds;
+        run("rate", Throttle.builder().rate("document/", capacity_per_second * 0.9, capacity).build(), capacity, input,
+            work_dir, document_count);
+        System.exit(0);
+    }
+
+    private static void run(String name, Throttle throttle, int capacity, Path input, Path work_dir,
+                            int document_count) throws Exception {
+        try (StandInServer server = new StandInServer(50, 200, 1024, upload_concurrency * 2)) {
+            server.limitSubmits(capacity, submit_service_in_miliseconds);
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(Transport.create(TransportProfile.builder().maxRequests(512)
+                                                                          .maxRequestsPerHost(512).build())))
+                .throttle(throttle)
+                .build();
+            BatchSummary summary = BatchRunner.builder(client)
+                .uploadConcurrency(upload_concurrency)
+                .skipExisting(false)
+                .build()
+                .run(IntStream.range(0, document_count)
+                     .mapToObj(index -> BatchRunner.Item.of(Operations.compress(input.toString(), "high"),
+                                                            work_dir.resolve(name).resolve(index + ".pdf").toString()))
+                     .iterator());
+            System.out.printf("%-10s %10d %10d %10d %12.1f %10d%n", name, summary.getSucceeded(), summary.getFailed(),
+                              server.rejectedSubmits(), summary.getDocumentsPerSecond(),
+                              summary.getLatency().getPercentile(0.99));
+            if (throttle != null) System.out.println("  " + throttle);
+        }
+    }
+}
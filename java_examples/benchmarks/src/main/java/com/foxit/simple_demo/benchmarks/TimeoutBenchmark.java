@@ -0,0 +1,89 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a benchmark of call and job deadlines against a server that hangs.
+
+package com.foxit.simple_demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.Operations;
+import com.foxit.simple_demo.client.TimeoutPolicy;
+import com.foxit.simple_demo.client.Transport;
+import com.foxit.simple_demo.client.TransportProfile;
+
+// Runs a batch against a server that hangs 2% of status requests for 20 s, first with the transport's
+// fixed 60 s timeouts only and then with a 1 s status timeout, and reports end-to-end latency. Then runs
+// one against a server on which 1% of tasks never complete, with a 5 s job deadline: those documents
+// fail once it passes instead of being polled forever, and their tasks are no longer polled. With
+// TimeoutPolicy.none that batch would never end, so it is not run.
+//
+// mvn -q exec:java -Dexec.mainClass="com.foxit.simple_demo.benchmarks.TimeoutBenchmark" -Dexec.args="1000"
+public class TimeoutBenchmark {
+
+    private static final double stall_ratio = 0.02;
+    private static final long stall_in_miliseconds = 20000;
+    private static final double stuck_ratio = 0.01;
+
+    public static void main(String[] args) throws Exception {
+        int document_count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Path work_dir = Files.createTempDirectory("foxit-timeout-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[1024]);
+
+        System.out.printf("%d documents, %.0f%% of status requests hang %d ms, then %.0f%% of tasks never complete%n",
+                          document_count, stall_ratio * 100, stall_in_miliseconds, stuck_ratio * 100);
+        System.out.printf("%-10s %10s %10s %14s %14s %14s %10s%n", "mode", "succeeded", "failed", "document p50",
+                          "document p99", "document max", "seconds");
+        run("fixed", TimeoutPolicy.none, false, input, work_dir, document_count);
+        run("adaptive", TimeoutPolicy.builder().statusTimeout(1000).build(), false, input, work_dir, document_count);
+        run("job", TimeoutPolicy.builder().statusTimeout(1000).jobTimeout(5000).build(), true, input, work_dir,
+            document_count);
+        System.exit(0);
+    }
+
+    private static void run(String name, TimeoutPolicy timeout_policy, boolean stuck_tasks, Path input, Path work_dir,
+                            int document_count) throws Exception {
+        try (StandInServer server = new StandInServer(100, 300, 64 * 1024, 256)) {
+            if (stuck_tasks) {
+                server.stickTasks(stuck_ratio);
+            } else {
+                server.stallStatus(stall_ratio, stall_in_miliseconds);
+            }
+            FoxitCloudClient client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+                .baseUrl(server.baseUrl())
+                .httpClient(server.meter(Transport.create(TransportProfile.builder().maxRequests(512)
+                                                                          .maxRequestsPerHost(512).build())))
+                .timeoutPolicy(timeout_policy)
+                .build();
+            long started = System.nanoTime();
+            BatchSummary summary = BatchRunner.builder(client)
+                .uploadConcurrency(32)
+                .downloadConcurrency(32)
+                .skipExisting(false)
+                .build()
+                .run(IntStream.range(0, document_count)
+                     .mapToObj(index -> BatchRunner.Item.of(Operations.compress(input.toString(), "high"),
+                                                            work_dir.resolve(name).resolve(index + ".pdf").toString()))
+                     .iterator());
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("%-10s %10d %10d %14d %14d %14d %10.1f%n", name, summary.getSucceeded(),
+                              summary.getFailed(), summary.getLatency().getPercentile(0.5),
+                              summary.getLatency().getPercentile(0.99), summary.getLatency().getMax(), seconds);
+            System.out.println("  " + client.engine().getPollMetrics() + " pending="
+                               + client.engine().getPendingTaskCount());
+        }
+    }
+}
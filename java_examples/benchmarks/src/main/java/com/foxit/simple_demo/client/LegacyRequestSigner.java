@@ -0,0 +1,56 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the original request signing code, kept as the baseline of RequestSignerBenchmark.
+
+package com.foxit.simple_demo.client;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Verbatim from the original examples: TreeMap, stream join, MessageDigest per call and String.format per byte.
+final class LegacyRequestSigner {
+
+    private final String secret_id;
+
+    LegacyRequestSigner(String secret_id) {
+        this.secret_id = secret_id;
+    }
+
+    String sign(Map<String, String> query_params) throws NoSuchAlgorithmException {
+        String query_string = query_params.entrySet().stream()
+            .map(entry -> entry.getKey() + "=" + encode(entry.getValue()))
+            .collect(Collectors.joining("&"));
+
+        query_string += "&sk=" + secret_id;
+        return generateMD5(query_string);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String generateMD5(String input) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] digest = md.digest(input.getBytes());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
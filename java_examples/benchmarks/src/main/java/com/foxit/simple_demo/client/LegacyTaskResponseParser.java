@@ -0,0 +1,68 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the original task response parsing code, kept as the baseline of ResponseParsingBenchmark.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import okhttp3.Response;
+
+// Verbatim from the original examples: the body is parsed into a tree, the taskInfo node is turned back
+// into a String, and pollForDocId parses that String again. The error body is parsed a third time.
+final class LegacyTaskResponseParser {
+
+    String readTaskId(Response response) throws IOException {
+        if (!response.isSuccessful()) throw new IOException("Unexpected code " + response);
+        String jsonData = response.body().string();
+        JsonParser parser = new JsonParser();
+        JsonObject object = (JsonObject) parser.parse(jsonData);
+        if(object.get("code").getAsInt() == 0) {
+            JsonObject object_data = object.get("data").getAsJsonObject();
+            return object_data.get("taskInfo").getAsJsonObject().get("taskId").getAsString();
+        } else {
+            throw new IOException("http response error:" + response);
+        }
+    }
+
+    // one iteration of the original pollForDocId, returning the docId or null while the task is running
+    String pollStep(Response response) throws IOException {
+        JsonParser parser = new JsonParser();
+        if (!response.isSuccessful()) {
+            String jsonData = response.body().string();
+            JsonObject object = (JsonObject) parser.parse(jsonData);
+            JsonObject object_data = object.get("data").getAsJsonObject();
+            String detail = object_data.get("detail").getAsString();
+            if(detail.indexOf("The task is running") > -1) return null;
+            throw new IOException("Unexpected code " + response);
+        }
+        String task_info = getTaskInfo(response);
+        JsonObject object = (JsonObject) parser.parse(task_info);
+        if(object.get("percentage").getAsInt() == 100){
+            return object.get("docId").getAsString();
+        }
+        return null;
+    }
+
+    private String getTaskInfo(Response response) throws IOException {
+        String jsonData = response.body().string();
+        JsonParser parser = new JsonParser();
+        JsonObject object = (JsonObject) parser.parse(jsonData);
+        if(object.get("code").getAsInt() == 0) {
+            JsonObject object_data = object.get("data").getAsJsonObject();
+            return object_data.get("taskInfo").toString();
+        } else {
+            throw new IOException("http response error:" + response);
+        }
+    }
+}
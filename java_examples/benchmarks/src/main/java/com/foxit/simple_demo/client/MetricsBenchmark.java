@@ -0,0 +1,92 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of recording the per endpoint metrics.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What every request pays for its metrics, with the threads of a busy client recording into the same
+// endpoint at once, next to the same counters and buckets behind one lock; and writing the Prometheus
+// text of a client that has called a handful of endpoints.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final String[] endpoints = {"document/compress", "document/convert", "task", "download"};
+
+    // the same data as EndpointMetrics.recordRequest, behind a lock
+    private static final class LockedMetrics {
+        private final long[] buckets = new long[LatencyHistogram.bucketOf(Long.MAX_VALUE) + 1];
+        private long requests;
+        private long failures;
+        private long bytes_uploaded;
+        private long sum;
+        private long max;
+
+        synchronized void recordRequest(long bytes_uploaded, long latency_in_miliseconds, boolean failed) {
+            requests++;
+            if (failed) failures++;
+            this.bytes_uploaded += bytes_uploaded;
+            buckets[LatencyHistogram.bucketOf(latency_in_miliseconds)]++;
+            sum += latency_in_miliseconds;
+            max = Math.max(max, latency_in_miliseconds);
+        }
+    }
+
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final LockedMetrics locked = new LockedMetrics();
+    private final ClientMetrics populated = new ClientMetrics();
+
+    @Setup
+    public void setup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (String endpoint : endpoints) {
+            for (int i = 0; i < 10000; i++) {
+                populated.endpoint(endpoint).recordRequest(random.nextInt(1 << 20), random.nextInt(5000), i % 50 == 0);
+                populated.endpoint(endpoint).recordTask(random.nextInt(60000), random.nextInt(1, 20));
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordRequest() {
+        metrics.endpoint("task").recordRequest(0, ThreadLocalRandom.current().nextInt(5000), false);
+    }
+
+    @Benchmark
+    public void recordRequestLocked() {
+        locked.recordRequest(0, ThreadLocalRandom.current().nextInt(5000), false);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String toPrometheus() {
+        return populated.toPrometheus();
+    }
+}
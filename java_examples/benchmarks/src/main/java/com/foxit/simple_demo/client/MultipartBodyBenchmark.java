@@ -0,0 +1,84 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of multipart request body construction.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.Request;
+import okio.BufferedSink;
+import okio.Okio;
+
+// Builds the signed submit request for a document of input_size bytes and writes its multipart body
+// to a discarding sink, as OkHttp would write it to the socket.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultipartBodyBenchmark {
+
+    @Param({"4096", "16777216"})
+    public int input_size;
+
+    private TaskEngine engine;
+    private Path input_file;
+    private ByteBuffer input_buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        engine = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark")).build().engine();
+        input_file = Files.createTempFile("foxit-multipart-benchmark", ".pdf");
+        Files.write(input_file, new byte[input_size]);
+        input_buffer = ByteBuffer.allocateDirect(input_size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input_file);
+    }
+
+    @Benchmark
+    public long fileSource() throws IOException {
+        return write(engine.newSubmitRequest(Operations.compress(UploadSource.of(input_file), "high")));
+    }
+
+    @Benchmark
+    public long bufferSource() throws IOException {
+        return write(engine.newSubmitRequest(Operations.compress(UploadSource.of("input.pdf", input_buffer), "high")));
+    }
+
+    private static long write(Request request) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            request.body().writeTo(sink);
+            return request.body().contentLength();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of request signing.
+
+package com.foxit.simple_demo.client;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares the original signing code with RequestSigner for the three request shapes.
+// Run with "-prof gc" to get bytes/op (gc.alloc.rate.norm):
+//   java -jar target/benchmarks.jar RequestSignerBenchmark -prof gc
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestSignerBenchmark {
+
+    private static final String client_id = "01f5a4c7e6b84a3c9f2d7e1b0a6c5d4e";
+    private static final String secret_id = "b7c3e9f1a2d44e6f8a0b1c2d3e4f5a6b";
+    private static final String task_id = "6622f0c1e4b0a1b2c3d4e5f6";
+    private static final String doc_id = "6622f0c1e4b0a1b2c3d4e5f7";
+    private static final String file_name = "CompressionResultFile.pdf";
+    private static final String config = "{\r\n  \"dpi\": 96,\r\n  \"pageRange\": \"all\" \r\n}";
+
+    private LegacyRequestSigner legacy;
+    private RequestSigner signer;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        legacy = new LegacyRequestSigner(secret_id);
+        signer = new RequestSigner(new Credentials(client_id, secret_id));
+        // Both implementations must produce the same signatures.
+        check(legacy.sign(taskParams()), signer.signTaskInfo(task_id));
+        check(legacy.sign(downloadParams()), signer.signDownload(doc_id, file_name));
+        check(legacy.sign(submitParams()), signer.sign(submitParams()));
+    }
+
+    @Benchmark
+    public String legacyTaskInfo() throws NoSuchAlgorithmException {
+        return legacy.sign(taskParams());
+    }
+
+    @Benchmark
+    public String signerTaskInfo() {
+        return signer.signTaskInfo(task_id);
+    }
+
+    @Benchmark
+    public String legacyDownload() throws NoSuchAlgorithmException {
+        return legacy.sign(downloadParams());
+    }
+
+    @Benchmark
+    public String signerDownload() {
+        return signer.signDownload(doc_id, file_name);
+    }
+
+    @Benchmark
+    public String legacySubmit() throws NoSuchAlgorithmException {
+        return legacy.sign(submitParams());
+    }
+
+    @Benchmark
+    public String signerSubmit() {
+        return signer.sign(submitParams());
+    }
+
+    private static Map<String, String> taskParams() {
+        Map<String, String> query_params = new TreeMap<>();
+        query_params.put("clientId", client_id);
+        query_params.put("taskId", task_id);
+        return query_params;
+    }
+
+    private static Map<String, String> downloadParams() {
+        Map<String, String> query_params = new TreeMap<>();
+        query_params.put("clientId", client_id);
+        query_params.put("docId", doc_id);
+        query_params.put("fileName", file_name);
+        return query_params;
+    }
+
+    private static TreeMap<String, String> submitParams() {
+        TreeMap<String, String> query_params = new TreeMap<>();
+        query_params.put("clientId", client_id);
+        query_params.put("config", config);
+        query_params.put("format", "image");
+        return query_params;
+    }
+
+    private static void check(String expected, String actual) {
+        if (!expected.equals(actual)) throw new IllegalStateException("signature mismatch: " + expected + " != " + actual);
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of task response parsing.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Reads the JSON answers of the submit and task interfaces the way the engine does, per poll, next to
+// the original tree parsing in LegacyTaskResponseParser. Run with "-prof gc" for the allocation per response.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseParsingBenchmark {
+
+    private static final MediaType json = MediaType.parse("application/json");
+    private static final String submit_response =
+        "{\"code\":0,\"msg\":\"success\",\"data\":{\"taskInfo\":{\"taskId\":\"6622f0c1e4b0a1b2c3d4e5f6\"}}}";
+    private static final String running_response =
+        "{\"code\":0,\"msg\":\"success\",\"data\":{\"taskInfo\":{\"taskId\":\"6622f0c1e4b0a1b2c3d4e5f6\","
+        + "\"percentage\":42,\"status\":\"running\"}}}";
+    private static final String completed_response =
+        "{\"code\":0,\"msg\":\"success\",\"data\":{\"taskInfo\":{\"taskId\":\"6622f0c1e4b0a1b2c3d4e5f6\","
+        + "\"percentage\":100,\"docId\":\"6622f0c1e4b0a1b2c3d4e5f7\",\"status\":\"completed\"}}}";
+
+    private static final String task_running_response =
+        "{\"code\":4001,\"msg\":\"error\",\"data\":{\"detail\":\"The task is running, please try again later.\"}}";
+
+    private final LegacyTaskResponseParser legacy = new LegacyTaskResponseParser();
+    private TaskEngine engine;
+    private Request request;
+
+    @Setup
+    public void setup() {
+        engine = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark")).build().engine();
+        request = engine.newTaskInfoRequest("6622f0c1e4b0a1b2c3d4e5f6");
+    }
+
+    @Benchmark
+    public String submitResponse() throws IOException {
+        return engine.readTaskId(response(submit_response));
+    }
+
+    @Benchmark
+    public TaskInfo runningTaskResponse() throws IOException {
+        return engine.readTaskInfo("6622f0c1e4b0a1b2c3d4e5f6", response(running_response));
+    }
+
+    @Benchmark
+    public TaskInfo completedTaskResponse() throws IOException {
+        return engine.readTaskInfo("6622f0c1e4b0a1b2c3d4e5f6", response(completed_response));
+    }
+
+    @Benchmark
+    public boolean taskRunningError() throws IOException {
+        try {
+            engine.readTaskInfo("6622f0c1e4b0a1b2c3d4e5f6", response(400, task_running_response));
+            return false;
+        } catch (RestException e) {
+            return TaskEngine.isTaskRunning(e);
+        }
+    }
+
+    @Benchmark
+    public String legacySubmitResponse() throws IOException {
+        return legacy.readTaskId(response(submit_response));
+    }
+
+    @Benchmark
+    public String legacyRunningTaskResponse() throws IOException {
+        return legacy.pollStep(response(running_response));
+    }
+
+    @Benchmark
+    public String legacyCompletedTaskResponse() throws IOException {
+        return legacy.pollStep(response(completed_response));
+    }
+
+    @Benchmark
+    public String legacyTaskRunningError() throws IOException {
+        return legacy.pollStep(response(400, task_running_response));
+    }
+
+    private Response response(String body) {
+        return response(200, body);
+    }
+
+    private Response response(int code, String body) {
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message(code == 200 ? "OK" : "Bad Request")
+            .body(ResponseBody.create(body, json))
+            .build();
+    }
+}
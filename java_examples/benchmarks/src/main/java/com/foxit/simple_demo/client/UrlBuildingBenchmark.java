@@ -0,0 +1,70 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of request url building.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+// buildURI alone, buildURI as the original examples wrote it (parsing the base url on every call),
+// and the complete signed status and download requests.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlBuildingBenchmark {
+
+    private static final String base_url = FoxitCloudClient.default_base_url;
+    private static final String task_id = "6622f0c1e4b0a1b2c3d4e5f6";
+    private static final String doc_id = "6622f0c1e4b0a1b2c3d4e5f7";
+
+    private TaskEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark")).build().engine();
+    }
+
+    @Benchmark
+    public HttpUrl buildURI() {
+        return engine.buildURI("document/compress").build();
+    }
+
+    @Benchmark
+    public HttpUrl buildURIParsingBaseUrl() {
+        return HttpUrl.parse(base_url).newBuilder().addPathSegments("document/compress").build();
+    }
+
+    @Benchmark
+    public Request taskInfoRequest() {
+        return engine.newTaskInfoRequest(task_id);
+    }
+
+    @Benchmark
+    public Request downloadRequest() {
+        return engine.newDownloadRequest(doc_id, java.nio.file.Paths.get("output_files/CompressionResultFile.pdf"));
+    }
+}
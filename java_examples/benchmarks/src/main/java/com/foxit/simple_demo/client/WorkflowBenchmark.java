@@ -0,0 +1,82 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMH benchmark of the whole submit, poll and download workflow.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.foxit.simple_demo.benchmarks.StandInServer;
+
+// One compress workflow against the in-process stand-in server, whose tasks complete immediately,
+// so the score is the client overhead of submit, one status request and download over loopback.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowBenchmark {
+
+    private StandInServer server;
+    private FoxitCloudClient client;
+    private Path work_dir;
+    private OperationRequest operation;
+    private String output_file_path;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new StandInServer(0, 64 * 1024, 8);
+        client = FoxitCloudClient.builder(new Credentials("benchmark", "benchmark"))
+            .baseUrl(server.baseUrl())
+            .pollStrategy(PollStrategy.fixed(0))
+            .build();
+        work_dir = Files.createTempDirectory("foxit-workflow-benchmark");
+        Path input = work_dir.resolve("input.pdf");
+        Files.write(input, new byte[64 * 1024]);
+        operation = Operations.compress(input.toString(), "high");
+        output_file_path = work_dir.resolve("output.pdf").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(work_dir.resolve("input.pdf"));
+        Files.deleteIfExists(work_dir.resolve("output.pdf"));
+        Files.deleteIfExists(work_dir);
+    }
+
+    @Benchmark
+    public Path blocking() throws IOException, InterruptedException {
+        return client.run(operation, output_file_path);
+    }
+
+    @Benchmark
+    public Path async() throws InterruptedException, ExecutionException {
+        return client.runAsync(operation, output_file_path).get();
+    }
+}
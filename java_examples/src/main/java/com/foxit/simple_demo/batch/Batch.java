@@ -0,0 +1,170 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains an example to demonstrate how to run a Foxit Cloud API operation over many documents.
+
+package com.foxit.simple_demo.batch;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.foxit.simple_demo.client.BatchInputs;
+import com.foxit.simple_demo.client.BatchRunner;
+import com.foxit.simple_demo.client.BatchSummary;
+import com.foxit.simple_demo.client.Credentials;
+import com.foxit.simple_demo.client.FoxitCloudClient;
+import com.foxit.simple_demo.client.OperationRequest;
+import com.foxit.simple_demo.client.TaskJournal;
+
+// Runs one operation over every input of a directory, a glob or a manifest:
+//   Batch <operation> <inputs> <output dir> [--upload=N] [--poll=N] [--download=N] [--ext=pdf]
+//         [--journal=file] [--url=server base url] [field=value ...]
+// e.g. Batch compress ./input_files output_files/batch compressionLevel=high
+// <inputs> is a directory, a glob such as "input_files/**/*.pdf", or @manifest with one document per
+// line. A manifest line holds the inputs of the operation separated by tabs (two for compare, a URL for
+// createFromHtml), optionally followed by the output path. The layout of a directory or glob is mirrored
+// in the output directory. With --journal, a batch that was interrupted continues its submitted tasks.
+// --url overrides the server base url.
+public class Batch {
+
+    private static final String default_base_url = "https://servicesapi.foxitsoftware.cn/api";
+
+    public static void start(String[] args) throws Exception {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: Batch <operation> <directory|glob|@manifest> <output dir> "
+                                               + "[--upload=N] [--poll=N] [--download=N] [--ext=pdf] "
+                                               + "[--journal=file] [--url=server base url] [field=value ...]");
+        }
+        String operation = args[0];
+        String inputs = args[1];
+        Path output_dir = Paths.get(args[2]);
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            String name = args[i].substring(0, equals);
+            if (name.startsWith("--")) {
+                options.put(name.substring(2), args[i].substring(equals + 1));
+            } else {
+                fields.put(name, args[i].substring(equals + 1));
+            }
+        }
+        String extension = options.getOrDefault("ext", "pdf");
+
+        FoxitCloudClient.Builder client_builder =
+            FoxitCloudClient.builder(Credentials.load("foxit_cloud_api_credentials.json"))
+                           .baseUrl(options.getOrDefault("url", default_base_url));
+        TaskJournal journal = null;
+        if (options.containsKey("journal")) {
+            journal = TaskJournal.open(Paths.get(options.get("journal")));
+            client_builder.journal(journal);
+        }
+        BatchRunner runner = BatchRunner.builder(client_builder.build())
+                                        .uploadConcurrency(intOption(options, "upload",
+                                                                     BatchRunner.default_upload_concurrency))
+                                        .pollConcurrency(intOption(options, "poll",
+                                                                   BatchRunner.default_poll_concurrency))
+                                        .downloadConcurrency(intOption(options, "download",
+                                                                       BatchRunner.default_download_concurrency))
+                                        .build();
+        String[] parts = filePartsOf(operation);
+        BatchSummary summary;
+        if (inputs.startsWith("@")) {
+            AtomicLong line = new AtomicLong();
+            try (Stream<String[]> manifest = BatchInputs.manifest(Paths.get(inputs.substring(1)))) {
+                summary = runner.run(manifest.map(columns -> {
+                    long number = line.incrementAndGet();
+                    int input_count = Math.max(1, parts.length);
+                    if (columns.length < input_count) {
+                        throw new IllegalArgumentException("Manifest entry " + number + " needs " + input_count
+                                                           + " inputs");
+                    }
+                    String output = columns.length > input_count ? columns[input_count]
+                                    : output_dir.resolve(outputName(columns[0], number, extension)).toString();
+                    return BatchRunner.Item.of(newOperation(operation, parts, columns, fields), output);
+                }).iterator());
+            }
+        } else {
+            if (parts.length != 1) {
+                throw new IllegalArgumentException(operation + " needs a manifest listing its inputs");
+            }
+            boolean is_directory = Files.isDirectory(Paths.get(inputs));
+            Path root = is_directory ? Paths.get(inputs) : BatchInputs.globRoot(inputs);
+            try (Stream<Path> listing = is_directory ? BatchInputs.directory(root) : BatchInputs.glob(inputs)) {
+                Iterator<BatchRunner.Item> items = listing.map(path -> {
+                    Path relative = root.relativize(path);
+                    Path output = output_dir.resolve(relative).resolveSibling(outputName(relative.toString(), 0,
+                                                                                          extension));
+                    return BatchRunner.Item.of(newOperation(operation, parts, new String[] {path.toString()}, fields),
+                                               output.toString());
+                }).iterator();
+                summary = runner.run(items);
+            }
+        }
+        if (journal != null) journal.close();
+        System.out.print(summary);
+    }
+
+    // The names of the file parts an operation uploads; createFromHtml uploads none and takes a URL.
+    private static String[] filePartsOf(String operation) {
+        switch (operation) {
+            case "combine":
+                return new String[] {"inputZipDocument"};
+            case "compare":
+                return new String[] {"inputBaseDocument", "inputCompareDocument"};
+            case "createFromHtml":
+                return new String[0];
+            default:
+                return new String[] {"inputDocument"};
+        }
+    }
+
+    private static OperationRequest newOperation(String operation, String[] parts, String[] inputs,
+                                                 Map<String, String> fields) {
+        OperationRequest.Builder request = OperationRequest.builder("document/" + operation);
+        if (parts.length == 0) {
+            request.field("url", inputs[0]);
+        }
+        for (int i = 0; i < parts.length; i++) {
+            request.file(parts[i], inputs[i]);
+        }
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            request.field(field.getKey(), field.getValue());
+        }
+        return request.build();
+    }
+
+    // The input's file name with the extension of the result; URLs get a numbered name instead.
+    private static String outputName(String input, long number, String extension) {
+        if (input.contains("://")) return "result-" + number + "." + extension;
+        String name = Paths.get(input).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "." + extension;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int default_value) {
+        String value = options.get(name);
+        return value == null ? default_value : Integer.parseInt(value);
+    }
+
+    public static void main (String[] args) {
+        try {
+            Batch.start(args);
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the polling strategy that backs off with jitter and predicts task completion.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Starts with a short delay and backs off exponentially with jitter while the task reports no progress.
+// Progress is measured from the submission, taken as 0 percent, so the first status request that reports
+// a percentage already yields a rate; the completion time is extrapolated from it and the next poll is
+// scheduled just after it, so short tasks are picked up quickly and long tasks are
+// not polled every few seconds for nothing.
+public final class AdaptivePollStrategy implements PollStrategy {
+
+    public static final long default_initial_delay_in_miliseconds = 250;
+    public static final long default_max_delay_in_miliseconds = 10000;
+    public static final double default_multiplier = 2.0;
+    public static final double default_jitter = 0.2;
+    // The poll following an estimate is sent this much later than the predicted completion.
+    private static final double eta_margin = 0.02;
+    private static final long eta_slack_in_miliseconds = 50;
+
+    private final long initial_delay_in_miliseconds;
+    private final long max_delay_in_miliseconds;
+    private final double multiplier;
+    private final double jitter;
+
+    public AdaptivePollStrategy() {
+        this(default_initial_delay_in_miliseconds, default_max_delay_in_miliseconds, default_multiplier, default_jitter);
+    }
+
+    public AdaptivePollStrategy(long initial_delay_in_miliseconds, long max_delay_in_miliseconds, double multiplier,
+                                double jitter) {
+        if (initial_delay_in_miliseconds <= 0 || max_delay_in_miliseconds < initial_delay_in_miliseconds) {
+            throw new IllegalArgumentException("Invalid poll delays");
+        }
+        if (multiplier < 1 || jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Invalid backoff multiplier or jitter");
+        }
+        this.initial_delay_in_miliseconds = initial_delay_in_miliseconds;
+        this.max_delay_in_miliseconds = max_delay_in_miliseconds;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Schedule newSchedule() {
+        return new AdaptiveSchedule();
+    }
+
+    // Earliest time in miliseconds at which the task can reach 100 percent, or -1 when the rate is unknown.
+    // The server truncates progress to whole percents, so the real progress may be up to one percent
+    // ahead of the reported one. Estimating from the upper bound never schedules the poll after the
+    // completion; an early poll just reports a higher percentage and yields a sharper estimate.
+    static long estimateRemaining(long submitted_nanos, int percentage, long now_nanos) {
+        if (percentage <= 0 || percentage >= 100 || now_nanos <= submitted_nanos) return -1;
+        int progress_upper_bound = percentage + 1;
+        double miliseconds_per_percent = TimeUnit.NANOSECONDS.toMillis(now_nanos - submitted_nanos)
+                                         / (double) progress_upper_bound;
+        return (long) ((100 - progress_upper_bound) * miliseconds_per_percent);
+    }
+
+    private final class AdaptiveSchedule implements Schedule {
+        private long backoff_in_miliseconds = initial_delay_in_miliseconds;
+        private long submitted_nanos;
+
+        @Override
+        public long firstDelay() {
+            submitted_nanos = System.nanoTime();
+            return withJitter(initial_delay_in_miliseconds);
+        }
+
+        @Override
+        public long nextDelay(int percentage) {
+            long remaining = estimateRemaining(submitted_nanos, percentage, System.nanoTime());
+            if (remaining >= 0) {
+                long delay = (long) (remaining * (1 + eta_margin)) + eta_slack_in_miliseconds;
+                return Math.max(initial_delay_in_miliseconds, Math.min(max_delay_in_miliseconds, delay));
+            }
+            long delay = withJitter(backoff_in_miliseconds);
+            backoff_in_miliseconds = Math.min(max_delay_in_miliseconds, (long) (backoff_in_miliseconds * multiplier));
+            return delay;
+        }
+
+        private long withJitter(long delay) {
+            if (jitter == 0) return delay;
+            double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+            return Math.max(1, (long) (delay * factor));
+        }
+    }
+}
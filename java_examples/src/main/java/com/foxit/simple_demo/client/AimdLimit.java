@@ -0,0 +1,208 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the adaptive concurrency limit of one endpoint.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Additive increase, multiplicative decrease, as TCP does for its window: every call that succeeds while
+// the limit is in use raises it by 1/limit, about one per round trip, and a call that is throttled, fails
+// with a 5xx or never gets an answer cuts it by backoff_ratio. When the recent latency, a fast moving
+// average, rises above latency_tolerance times the long-run one, a queue is building up on the server,
+// and the limit shrinks a little before errors start. Comparing averages rather than single calls keeps
+// the jitter of individual requests from being taken for load. At most one cut is made per round trip,
+// so a burst of failures caused by one overload does not collapse the limit to its minimum.
+final class AimdLimit {
+
+    enum Outcome {
+        success,
+        // the server is overloaded or unreachable
+        dropped,
+        // the call ended without telling anything about the server's load, e.g. it was cancelled
+        ignored
+    }
+
+    private static final double latency_backoff_ratio = 0.9;
+    // weights of a new sample in the recent and the long-run latency averages
+    private static final double recent_weight = 0.2;
+    private static final double long_run_weight = 0.02;
+    // samples before the averages are trusted
+    private static final int warm_up_samples = 20;
+    // the time between two cuts while no round trip was measured yet, e.g. when the first calls are all
+    // throttled
+    private static final long min_cut_interval_nanos = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final int min_limit;
+    private final int max_limit;
+    private final double backoff_ratio;
+    private final double latency_tolerance;
+    // all guarded by this
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private double limit;
+    private int in_flight;
+    private double recent_nanos;
+    private double long_run_nanos;
+    private long samples;
+    private long last_cut_nanos;
+    private long cuts;
+
+    AimdLimit(int initial_limit, int min_limit, int max_limit, double backoff_ratio, double latency_tolerance) {
+        if (min_limit <= 0 || min_limit > initial_limit || initial_limit > max_limit) {
+            throw new IllegalArgumentException("Expected 0 < min_limit <= initial_limit <= max_limit");
+        }
+        if (backoff_ratio <= 0 || backoff_ratio >= 1) throw new IllegalArgumentException("backoff_ratio must be in (0, 1)");
+        if (latency_tolerance <= 1) throw new IllegalArgumentException("latency_tolerance must be above 1");
+        this.limit = initial_limit;
+        this.min_limit = min_limit;
+        this.max_limit = max_limit;
+        this.backoff_ratio = backoff_ratio;
+        this.latency_tolerance = latency_tolerance;
+    }
+
+    // Completes once a call may start; waiting callers are let in first come, first served. A caller that
+    // stops waiting must withdraw() or abandon() the future.
+    CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        synchronized (this) {
+            if (in_flight >= (int) limit || !waiting.isEmpty()) {
+                waiting.add(permit);
+                return permit;
+            }
+            in_flight++;
+        }
+        permit.complete(null);
+        return permit;
+    }
+
+    // Waits no longer than the job may: fails once it is cancelled or its deadline passes.
+    void acquireBlocking(Job job, String endpoint) throws IOException {
+        CompletableFuture<Void> permit = acquire();
+        if (permit.isDone()) return;
+        CancellationToken.Registration registration = job.onCancel(() -> withdraw(permit));
+        try {
+            long remaining = job.remainingMiliseconds();
+            if (remaining == Long.MAX_VALUE) {
+                permit.get();
+            } else {
+                permit.get(remaining, TimeUnit.MILLISECONDS);
+            }
+        } catch (CancellationException e) {
+            throw job.cancelled(endpoint);
+        } catch (TimeoutException e) {
+            abandon(permit);
+            throw job.exceeded(endpoint);
+        } catch (InterruptedException e) {
+            abandon(permit);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the concurrency limit of " + endpoint);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            registration.remove();
+        }
+    }
+
+    // Takes a waiting caller out of the queue; false when its permit was already granted, or withdrawn.
+    boolean withdraw(CompletableFuture<Void> permit) {
+        if (!permit.cancel(false)) return false;
+        synchronized (this) {
+            waiting.remove(permit);
+        }
+        return true;
+    }
+
+    // Gives up a permit no longer wanted, whether it is still waiting or was granted meanwhile.
+    void abandon(CompletableFuture<Void> permit) {
+        if (!withdraw(permit) && !permit.isCancelled()) release(Outcome.ignored, 0);
+    }
+
+    void release(Outcome outcome, long latency_nanos) {
+        ArrayDeque<CompletableFuture<Void>> granted = new ArrayDeque<>();
+        synchronized (this) {
+            in_flight--;
+            adjust(outcome, latency_nanos);
+            while (in_flight < (int) limit && !waiting.isEmpty()) {
+                in_flight++;
+                granted.add(waiting.poll());
+            }
+        }
+        for (CompletableFuture<Void> permit : granted) {
+            // withdrawn between leaving the queue and being granted: the slot goes to the next caller
+            if (!permit.complete(null)) release(Outcome.ignored, 0);
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return in_flight;
+    }
+
+    synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    synchronized long getCuts() {
+        return cuts;
+    }
+
+    private void adjust(Outcome outcome, long latency_nanos) {
+        if (outcome == Outcome.ignored) return;
+        long now = System.nanoTime();
+        if (outcome == Outcome.dropped) {
+            cut(now, backoff_ratio, latency_nanos);
+            return;
+        }
+        // a negative latency is unknown: the call still counts as healthy
+        if (latency_nanos < 0) {
+            grow();
+            return;
+        }
+        if (samples++ == 0) {
+            recent_nanos = latency_nanos;
+            long_run_nanos = latency_nanos;
+        } else {
+            recent_nanos += (latency_nanos - recent_nanos) * recent_weight;
+            long_run_nanos += (latency_nanos - long_run_nanos) * long_run_weight;
+        }
+        if (samples > warm_up_samples && recent_nanos > long_run_nanos * latency_tolerance) {
+            cut(now, latency_backoff_ratio, latency_nanos);
+        } else {
+            grow();
+        }
+    }
+
+    private void grow() {
+        // only a limit that is actually used is raised
+        if (in_flight + 1 >= limit / 2) {
+            limit = Math.min(max_limit, limit + 1 / limit);
+        }
+    }
+
+    // One cut per round trip: the recent average once known, else that of the failed call, but at least
+    // min_cut_interval_nanos.
+    private void cut(long now, double ratio, long latency_nanos) {
+        double round_trip_nanos = samples > 0 ? recent_nanos : Math.max(min_cut_interval_nanos, latency_nanos);
+        if (cuts > 0 && now - last_cut_nanos < round_trip_nanos) return;
+        limit = Math.max(min_limit, limit * ratio);
+        last_cut_nanos = now;
+        cuts++;
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a non-blocking concurrency limit for asynchronous calls.
+
+package com.foxit.simple_demo.client;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Lets at most limit asynchronous calls run at once. Calls beyond the limit wait in a FIFO queue and are
+// started by the completion of an earlier one, so waiting holds no thread. Measures how long each call
+// ran, from its start rather than from when it was queued.
+//
+// A queued call whose returned future is completed or cancelled meanwhile is dropped when its turn
+// comes, without running.
+final class AsyncLimiter {
+
+    private final class Pending<T> {
+        final Supplier<CompletableFuture<T>> call;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(Supplier<CompletableFuture<T>> call) {
+            this.call = call;
+        }
+
+        void start() {
+            long started = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((value, error) -> {
+                latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                release();
+                if (error != null) {
+                    // as received, like thenCompose: unwrapped, every stage after it would wrap it again
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+
+    private final int limit;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // guarded by this
+    private final ArrayDeque<Pending<?>> waiting = new ArrayDeque<>();
+    private int running;
+    private final AtomicInteger starting = new AtomicInteger();
+
+    AsyncLimiter(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be positive");
+        this.limit = limit;
+    }
+
+    <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> call) {
+        Pending<T> pending = new Pending<>(call);
+        synchronized (this) {
+            waiting.add(pending);
+        }
+        startWaiting();
+        return pending.result;
+    }
+
+    // Call durations in miliseconds.
+    LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    synchronized int waitingCount() {
+        return waiting.size();
+    }
+
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        startWaiting();
+    }
+
+    // Starts queued calls while there is room. A call that completes at once releases its place from within
+    // start(); that thread only counts itself in and the loop already running here picks the next call up,
+    // so a long queue of such calls, e.g. after a cancel, drains in a loop rather than a deep recursion.
+    private void startWaiting() {
+        if (starting.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            while (true) {
+                Pending<?> next;
+                synchronized (this) {
+                    next = running < limit ? nextWaiting() : null;
+                    if (next == null) break;
+                    running++;
+                }
+                next.start();
+            }
+            missed = starting.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // guarded by this
+    private Pending<?> nextWaiting() {
+        Pending<?> next;
+        while ((next = waiting.poll()) != null && next.result.isDone()) {
+            // given up while it waited
+        }
+        return next;
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the executor used to run many blocking document workflows concurrently.
+
+package com.foxit.simple_demo.client;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs each document's submit, poll and download sequence on its own thread.
+// On a JVM with virtual threads (Java 21+) every workflow gets a virtual thread, so blocking
+// in execute() or between polls costs no platform thread. Older JVMs, including the Java 8
+// this project targets, fall back to a bounded pool of platform threads.
+//
+// Cancelling a returned future cancels the token of what it runs: a workflow stops from any point, and
+// a batch stops taking inputs and cancels the jobs of every document in flight.
+public final class BatchExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final boolean virtual_threads;
+
+    private BatchExecutor(ExecutorService executor, boolean virtual_threads) {
+        this.executor = executor;
+        this.virtual_threads = virtual_threads;
+    }
+
+    // Uses virtual threads when the JVM supports them, otherwise a pool of platform_threads threads.
+    public static BatchExecutor create(int platform_threads) {
+        ExecutorService virtual_executor = newVirtualThreadPerTaskExecutor();
+        if (virtual_executor != null) {
+            return new BatchExecutor(virtual_executor, true);
+        }
+        return platform(platform_threads);
+    }
+
+    public static BatchExecutor platform(int platform_threads) {
+        if (platform_threads <= 0) throw new IllegalArgumentException("platform_threads must be positive");
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(platform_threads, platform_threads,
+                                                         60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                         runnable -> {
+            Thread thread = new Thread(runnable, "foxit-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return new BatchExecutor(pool, false);
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtual_threads;
+    }
+
+    public CompletableFuture<Path> submit(FoxitCloudClient client, OperationRequest operation, String output_file_path) {
+        return submit(client, operation, output_file_path, CancellationToken.none);
+    }
+
+    // The workflow also stops once token is cancelled, which can be shared by many submissions.
+    public CompletableFuture<Path> submit(FoxitCloudClient client, OperationRequest operation, String output_file_path,
+                                          CancellationToken token) {
+        CancellationToken own = new CancellationToken();
+        CancellationToken.Registration link = token.link(own);
+        return start(own, link, () -> client.run(operation, output_file_path, own));
+    }
+
+    // Runs the batch on a thread of this executor.
+    public CompletableFuture<BatchSummary> submit(BatchRunner runner, Iterator<BatchRunner.Item> items) {
+        CancellationToken token = new CancellationToken();
+        return start(token, null, () -> runner.run(items, token));
+    }
+
+    private interface Work<T> {
+        T run() throws Exception;
+    }
+
+    // link, to the caller's token, is removed once the work ends; null for none
+    private <T> CompletableFuture<T> start(CancellationToken token, CancellationToken.Registration link,
+                                           Work<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) token.cancel();
+            if (link != null) link.remove();
+        });
+        executor.execute(() -> {
+            // cancelled while it waited for a thread
+            if (result.isDone()) return;
+            try {
+                result.complete(work.run());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // Stops accepting work and waits for the submitted workflows to finish. If the waiting thread is
+    // interrupted, the workflows are interrupted too, and the interrupt is kept once they have ended.
+    @Override
+    public void close() {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                // keep waiting, workflows end when their task is downloaded or fails
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                if (!interrupted) {
+                    executor.shutdownNow();
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Older JVMs do not have the method,
+            // Java 19/20 expose it but reject it unless preview features are enabled.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the input listings of a batch run.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+// Lists the inputs of a BatchRunner lazily: directories are walked and manifests read as the stream is
+// consumed, so a listing of millions of files never has to fit in memory. The streams hold open
+// directories or files and must be closed.
+public final class BatchInputs {
+
+    private BatchInputs() {
+    }
+
+    // The regular files in dir and its subdirectories.
+    public static Stream<Path> directory(Path dir) throws IOException {
+        return Files.walk(dir).filter(Files::isRegularFile);
+    }
+
+    // The regular files matching a glob such as "input_files/**/*.pdf". Only the directory before the first
+    // wildcard is walked, and no deeper than the pattern can match.
+    public static Stream<Path> glob(String pattern) throws IOException {
+        String normalized = normalizeGlob(pattern);
+        Path root = globRoot(normalized);
+        int depth = Integer.MAX_VALUE;
+        if (!normalized.contains("**")) {
+            depth = root.toString().isEmpty() ? 0 : -root.getNameCount();
+            for (String segment : normalized.split("/")) {
+                if (!segment.isEmpty()) depth++;
+            }
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+        return Files.walk(root, depth).filter(path -> matcher.matches(path) && Files.isRegularFile(path));
+    }
+
+    // The directory a glob is walked from: its segments before the first wildcard, without the file name.
+    // Used to mirror the layout of the inputs in an output directory.
+    public static Path globRoot(String pattern) {
+        String[] segments = normalizeGlob(pattern).split("/");
+        Path root = Paths.get(segments[0].isEmpty() ? "/" : "");
+        for (int i = 0; i < segments.length - 1 && !hasWildcard(segments[i]); i++) {
+            if (!segments[i].isEmpty()) root = root.resolve(segments[i]);
+        }
+        return root;
+    }
+
+    // Walking "" yields paths without a "./" prefix, so the pattern must not have one either.
+    private static String normalizeGlob(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        return normalized;
+    }
+
+    // One input per line, with tab-separated columns; blank lines and lines starting with # are skipped.
+    public static Stream<String[]> manifest(Path manifest) throws IOException {
+        return Files.lines(manifest)
+            .filter(line -> !line.trim().isEmpty() && !line.startsWith("#"))
+            .map(line -> line.split("\t"));
+    }
+
+    private static boolean hasWildcard(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            switch (segment.charAt(i)) {
+                case '*':
+                case '?':
+                case '[':
+                case '{':
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the runner that pushes a stream of documents through an operation.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs an operation over any number of inputs with separate limits on concurrent uploads, tasks being
+// polled and downloads. Inputs are taken from the iterator only as earlier ones finish, so at most
+// upload + poll + download documents are in flight and a listing of millions of inputs is never held in
+// memory. Results, coalescing and the journal of the client apply as in runAsync.
+//
+//   try (Stream<Path> inputs = BatchInputs.directory(Paths.get("input_files"))) {
+//       BatchSummary summary = BatchRunner.builder(client).build().run(inputs
+//           .map(path -> BatchRunner.Item.of(Operations.compress(path.toString(), "high"), "out/" + path.getFileName()))
+//           .iterator());
+//   }
+public final class BatchRunner {
+
+    public static final int default_upload_concurrency = 8;
+    public static final int default_poll_concurrency = 256;
+    public static final int default_download_concurrency = 8;
+
+    // One document: the operation to run and where its result goes.
+    public static final class Item {
+        private final OperationRequest operation;
+        private final String output_file_path;
+
+        private Item(OperationRequest operation, String output_file_path) {
+            this.operation = operation;
+            this.output_file_path = output_file_path;
+        }
+
+        public static Item of(OperationRequest operation, String output_file_path) {
+            return new Item(operation, output_file_path);
+        }
+
+        public OperationRequest getOperation() {
+            return operation;
+        }
+
+        public String getOutputFilePath() {
+            return output_file_path;
+        }
+    }
+
+    private final FoxitCloudClient client;
+    private final int upload_concurrency;
+    private final int poll_concurrency;
+    private final int download_concurrency;
+    private final boolean skip_existing;
+    private final boolean resume;
+
+    private BatchRunner(Builder builder) {
+        this.client = builder.client;
+        this.upload_concurrency = builder.upload_concurrency;
+        this.poll_concurrency = builder.poll_concurrency;
+        this.download_concurrency = builder.download_concurrency;
+        this.skip_existing = builder.skip_existing;
+        this.resume = builder.resume;
+    }
+
+    public static Builder builder(FoxitCloudClient client) {
+        return new Builder(client);
+    }
+
+    // Returns once every input has succeeded or failed; a failure does not stop the others.
+    public BatchSummary run(Iterator<Item> items) throws InterruptedException {
+        return run(items, CancellationToken.none);
+    }
+
+    // Cancelling the token stops the batch: no further input is taken, and the documents in flight fail
+    // with a CancelledException as soon as their current call or wait is aborted.
+    public BatchSummary run(Iterator<Item> items, CancellationToken token) throws InterruptedException {
+        StageLimits limits = new StageLimits(new AsyncLimiter(upload_concurrency), new AsyncLimiter(poll_concurrency),
+                                             new AsyncLimiter(download_concurrency));
+        BatchSummary summary = new BatchSummary(limits.getUpload().getLatency(), limits.getPoll().getLatency(),
+                                                limits.getDownload().getLatency());
+        int max_in_flight = upload_concurrency + poll_concurrency + download_concurrency;
+        Semaphore in_flight = new Semaphore(max_in_flight);
+        // the documents not yet done, plus one for the loop taking the inputs; waiting for the in_flight
+        // permits instead would wake the waiting thread at every document done, e.g. 10000 times on a cancel
+        Outstanding outstanding = new Outstanding();
+        long started = System.nanoTime();
+        // by input key, the output paths of the tasks being resumed
+        Map<String, Set<Path>> resumed_outputs = new HashMap<>();
+        if (resume) {
+            for (Map.Entry<TaskJournal.Entry, CompletableFuture<Path>> resumed
+                    : client.engine().resumeAsync(limits, token).entrySet()) {
+                TaskJournal.Entry entry = resumed.getKey();
+                if (!entry.getInputKey().isEmpty()) {
+                    resumed_outputs.computeIfAbsent(entry.getInputKey(), ignored -> new HashSet<>())
+                                   .add(Paths.get(entry.getOutputPath()).normalize());
+                }
+                in_flight.acquire();
+                summary.recordResumed();
+                track(resumed.getValue(), "resumed task", 0, System.nanoTime(), summary, in_flight, outstanding);
+            }
+        }
+        while (!token.isCancelled() && items.hasNext()) {
+            Item item = items.next();
+            if ((skip_existing && Files.exists(Paths.get(item.output_file_path)))
+                || isResumed(item, resumed_outputs)) {
+                summary.recordSkipped();
+                continue;
+            }
+            in_flight.acquire();
+            CompletableFuture<Path> result = client.engine().runAsync(item.operation, item.output_file_path, limits,
+                                                                      token);
+            track(result, describe(item), uploadSize(item.operation), System.nanoTime(), summary, in_flight,
+                  outstanding);
+        }
+        outstanding.done();
+        outstanding.await();
+        summary.finish(System.nanoTime() - started);
+        return summary;
+    }
+
+    private static final class Outstanding {
+        private final AtomicInteger count = new AtomicInteger(1);
+        private final CountDownLatch none = new CountDownLatch(1);
+
+        void add() {
+            count.incrementAndGet();
+        }
+
+        void done() {
+            if (count.decrementAndGet() == 0) none.countDown();
+        }
+
+        void await() throws InterruptedException {
+            none.await();
+        }
+    }
+
+    private static void track(CompletableFuture<Path> result, String input, long uploaded, long started,
+                              BatchSummary summary, Semaphore in_flight, Outstanding outstanding) {
+        outstanding.add();
+        result.whenComplete((path, error) -> {
+            try {
+                if (error != null) {
+                    summary.recordFailed(input, TaskEngine.unwrap(error));
+                } else {
+                    summary.recordSucceeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), uploaded,
+                                            Files.size(path));
+                }
+            } catch (IOException e) {
+                summary.recordFailed(input, e);
+            } finally {
+                in_flight.release();
+                outstanding.done();
+            }
+        });
+    }
+
+    // The task of the input is already being resumed to the same output path. One resumed to another path
+    // is joined by runAsync, which copies its result.
+    private boolean isResumed(Item item, Map<String, Set<Path>> resumed_outputs) {
+        if (resumed_outputs.isEmpty()) return false;
+        String key;
+        try {
+            key = client.engine().resultKey(item.operation);
+        } catch (IOException e) {
+            // runAsync fails on the same input
+            return false;
+        }
+        Set<Path> outputs = key == null ? null : resumed_outputs.get(key);
+        return outputs != null && outputs.contains(Paths.get(item.output_file_path).toAbsolutePath().normalize());
+    }
+
+    private static String describe(Item item) {
+        if (item.operation.getFiles().isEmpty()) return item.operation.getEndpoint() + " -> " + item.output_file_path;
+        return item.operation.getFiles().get(0).getSource().getFileName() + " -> " + item.output_file_path;
+    }
+
+    private static long uploadSize(OperationRequest operation) {
+        long size = 0;
+        for (OperationRequest.FilePart part : operation.getFiles()) {
+            size += Math.max(0, part.getSource().contentLength());
+        }
+        return size;
+    }
+
+    public static final class Builder {
+        private final FoxitCloudClient client;
+        private int upload_concurrency = default_upload_concurrency;
+        private int poll_concurrency = default_poll_concurrency;
+        private int download_concurrency = default_download_concurrency;
+        private boolean skip_existing = true;
+        private boolean resume = true;
+
+        private Builder(FoxitCloudClient client) {
+            this.client = client;
+        }
+
+        // Submissions in flight, each uploading its input documents.
+        public Builder uploadConcurrency(int upload_concurrency) {
+            this.upload_concurrency = requirePositive(upload_concurrency, "upload_concurrency");
+            return this;
+        }
+
+        // Submitted tasks waited on at once. Their status requests are further capped by the client's
+        // maxConcurrentPolls.
+        public Builder pollConcurrency(int poll_concurrency) {
+            this.poll_concurrency = requirePositive(poll_concurrency, "poll_concurrency");
+            return this;
+        }
+
+        public Builder downloadConcurrency(int download_concurrency) {
+            this.download_concurrency = requirePositive(download_concurrency, "download_concurrency");
+            return this;
+        }
+
+        // Leaves out inputs whose output file already exists, so an interrupted batch can simply be run
+        // again. Outputs are moved into place only once complete, so an existing one is never truncated.
+        // On by default.
+        public Builder skipExisting(boolean skip_existing) {
+            this.skip_existing = skip_existing;
+            return this;
+        }
+
+        // Continues the tasks left in the client's journal before taking new inputs, and leaves out the
+        // inputs whose task is among them. On by default; without a journal there is nothing to continue.
+        public Builder resume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        public BatchRunner build() {
+            return new BatchRunner(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) throw new IllegalArgumentException(name + " must be positive");
+            return value;
+        }
+    }
+}
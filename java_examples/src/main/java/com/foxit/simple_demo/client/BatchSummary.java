@@ -0,0 +1,159 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the throughput and latency summary of a batch run.
+
+package com.foxit.simple_demo.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// What a BatchRunner did: documents per outcome, bytes moved, and latencies in miliseconds, end to end
+// per document and per stage. Stage latencies count from the start of the call, not from when it was
+// queued behind the stage's concurrency limit.
+public final class BatchSummary {
+
+    private static final int max_errors = 10;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder uploaded_bytes = new LongAdder();
+    private final LongAdder downloaded_bytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram upload_latency;
+    private final LatencyHistogram poll_latency;
+    private final LatencyHistogram download_latency;
+    // the first few failures, guarded by itself
+    private final List<String> errors = new ArrayList<>();
+    private volatile long elapsed_in_nanos;
+
+    BatchSummary(LatencyHistogram upload_latency, LatencyHistogram poll_latency, LatencyHistogram download_latency) {
+        this.upload_latency = upload_latency;
+        this.poll_latency = poll_latency;
+        this.download_latency = download_latency;
+    }
+
+    void recordSucceeded(long latency_in_miliseconds, long uploaded, long downloaded) {
+        succeeded.increment();
+        latency.record(latency_in_miliseconds);
+        uploaded_bytes.add(uploaded);
+        downloaded_bytes.add(downloaded);
+    }
+
+    void recordFailed(String input, Throwable error) {
+        failed.increment();
+        synchronized (errors) {
+            if (errors.size() < max_errors) errors.add(input + ": " + error);
+        }
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    void recordResumed() {
+        resumed.increment();
+    }
+
+    void finish(long elapsed_in_nanos) {
+        this.elapsed_in_nanos = elapsed_in_nanos;
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    // Inputs whose output already existed.
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    // Tasks continued from the journal rather than submitted by this run; also counted as succeeded or failed.
+    public long getResumed() {
+        return resumed.sum();
+    }
+
+    public long getUploadedBytes() {
+        return uploaded_bytes.sum();
+    }
+
+    public long getDownloadedBytes() {
+        return downloaded_bytes.sum();
+    }
+
+    public long getElapsedMiliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsed_in_nanos);
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsed_in_nanos == 0 ? 0.0 : getSucceeded() * 1e9 / elapsed_in_nanos;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getUploadLatency() {
+        return upload_latency;
+    }
+
+    public LatencyHistogram getPollLatency() {
+        return poll_latency;
+    }
+
+    public LatencyHistogram getDownloadLatency() {
+        return download_latency;
+    }
+
+    // The first failures, as "input: error".
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsed_in_nanos / 1e9;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%d succeeded, %d failed, %d skipped, %d resumed in %.1f s%n", getSucceeded(),
+                                     getFailed(), getSkipped(), getResumed(), seconds));
+        summary.append(String.format("%.1f documents/s, %.2f MB/s uploaded, %.2f MB/s downloaded%n",
+                                     getDocumentsPerSecond(), megabytesPerSecond(getUploadedBytes(), seconds),
+                                     megabytesPerSecond(getDownloadedBytes(), seconds)));
+        summary.append(String.format("%-10s %8s %8s %8s %8s %8s%n", "ms", "p50", "p90", "p99", "max", "count"));
+        appendLatency(summary, "document", latency);
+        appendLatency(summary, "upload", upload_latency);
+        appendLatency(summary, "poll", poll_latency);
+        appendLatency(summary, "download", download_latency);
+        for (String error : getErrors()) {
+            summary.append("failed: ").append(error).append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    private static double megabytesPerSecond(long bytes, double seconds) {
+        return seconds == 0 ? 0.0 : bytes / 1e6 / seconds;
+    }
+
+    private static void appendLatency(StringBuilder summary, String name, LatencyHistogram histogram) {
+        summary.append(String.format("%-10s %8d %8d %8d %8d %8d%n", name, histogram.getPercentile(0.5),
+                                     histogram.getPercentile(0.9), histogram.getPercentile(0.99), histogram.getMax(),
+                                     histogram.getCount()));
+    }
+}
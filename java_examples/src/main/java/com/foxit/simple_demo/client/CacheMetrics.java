@@ -0,0 +1,78 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the hit and miss counters of a result cache.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters are striped like PollMetrics, so recording from many threads is cheap. An error is a
+// lookup or store that failed on the cache side: the operation itself went on without the cache.
+// The record methods are public so ResultStore implementations outside this package can count too.
+public final class CacheMetrics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordStore() {
+        stores.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0.0 : hits / (double) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d hit-ratio=%.2f stores=%d evictions=%d errors=%d", getHits(),
+                             getMisses(), getHitRatio(), getStores(), getEvictions(), getErrors());
+    }
+}
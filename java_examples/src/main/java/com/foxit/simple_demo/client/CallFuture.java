@@ -0,0 +1,81 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the bridge from OkHttp asynchronous calls to CompletableFuture.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+// Completes with the value read from the response on the OkHttp dispatcher thread.
+// The response is always closed right after the handler ran, and cancelling the future cancels the call.
+// A call cancelled by its CallWatchdog fails with the watchdog's timeout instead of "Canceled".
+final class CallFuture<T> extends CompletableFuture<T> implements Callback {
+
+    interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    private final Call call;
+    private final ResponseHandler<T> handler;
+    private final CallWatchdog watchdog;
+
+    private CallFuture(Call call, ResponseHandler<T> handler, CallWatchdog watchdog) {
+        this.call = call;
+        this.handler = handler;
+        this.watchdog = watchdog;
+    }
+
+    static <T> CallFuture<T> enqueue(Call call, ResponseHandler<T> handler, CallWatchdog watchdog) {
+        CallFuture<T> future = new CallFuture<>(call, handler, watchdog);
+        call.enqueue(future);
+        return future;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+        watchdog.disarm();
+        completeExceptionally(watchdog.translate(e));
+    }
+
+    // The future is completed only once the response is closed: dependent stages run on this thread
+    // from within complete(), and must not hold the connection back from the pool while they do.
+    @Override
+    public void onResponse(Call call, Response response) {
+        T value;
+        try (Response closeable = response) {
+            value = handler.handle(closeable);
+        } catch (IOException e) {
+            watchdog.disarm();
+            completeExceptionally(watchdog.translate(e));
+            return;
+        } catch (RuntimeException e) {
+            watchdog.disarm();
+            completeExceptionally(e);
+            return;
+        }
+        watchdog.disarm();
+        complete(value);
+    }
+
+    @Override
+    public boolean cancel(boolean may_interrupt_if_running) {
+        boolean cancelled = super.cancel(may_interrupt_if_running);
+        if (cancelled) {
+            watchdog.disarm();
+            call.cancel();
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the timer that cancels calls running past their deadline.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+
+// Cancels a call that outlives its own timeout or what is left of its job's deadline, whichever ends
+// first, on the shared TimerWheel, or whose job is cancelled. The call then fails with a
+// SocketTimeoutException, which is retried like any other timeout, or with the job's
+// DeadlineExceededException or CancelledException, instead of OkHttp's "Canceled".
+// The timeout can be restarted while the call runs, e.g. once the size of a download is known.
+final class CallWatchdog {
+
+    private final String what;
+    private final Job job;
+    private Call call;
+    private TimerWheel.Timeout timer;
+    private CancellationToken.Registration cancellation;
+    private boolean done;
+    private volatile IOException expired;
+
+    CallWatchdog(String what, Job job) {
+        this.what = what;
+        this.job = job;
+    }
+
+    // Starts watching the call, which is given timeout_in_miliseconds from now, 0 for no timeout of its own.
+    // Fails at once when the job's deadline has already passed or the job was cancelled.
+    synchronized void watch(Call call, long timeout_in_miliseconds) throws IOException {
+        job.check(what);
+        this.call = call;
+        arm(timeout_in_miliseconds);
+        cancellation = job.onCancel(() -> expire(job.cancelled(what)));
+    }
+
+    // Gives the call timeout_in_miliseconds from now instead.
+    synchronized void restart(long timeout_in_miliseconds) {
+        if (done || call == null) return;
+        if (timer != null) timer.cancel();
+        arm(timeout_in_miliseconds);
+    }
+
+    synchronized void disarm() {
+        done = true;
+        if (timer != null) timer.cancel();
+        if (cancellation != null) cancellation.remove();
+    }
+
+    // The error the call failed with, as seen by the caller.
+    IOException translate(IOException error) {
+        IOException cause = expired;
+        return cause != null ? cause : error;
+    }
+
+    Throwable translate(Throwable error) {
+        IOException cause = expired;
+        return cause != null ? cause : error;
+    }
+
+    private void arm(long timeout_in_miliseconds) {
+        long job_left = job.remainingMiliseconds();
+        long own = timeout_in_miliseconds > 0 ? timeout_in_miliseconds : Long.MAX_VALUE;
+        if (own == Long.MAX_VALUE && job_left == Long.MAX_VALUE) {
+            timer = null;
+            return;
+        }
+        boolean job_first = job_left <= own;
+        timer = TimerWheel.shared().schedule(() -> expire(job_first ? job.exceeded(what)
+            : new SocketTimeoutException(what + " timed out after " + own + " ms")), Math.min(own, job_left),
+                                             TimeUnit.MILLISECONDS);
+    }
+
+    private void expire(IOException cause) {
+        Call expiring;
+        synchronized (this) {
+            if (done) return;
+            expired = cause;
+            expiring = call;
+        }
+        expiring.cancel();
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the token that cancels running jobs.
+
+package com.foxit.simple_demo.client;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Passed to runs and batches to stop them from another thread. Cancelling aborts an upload or download in
+// progress, stops polling for their tasks and frees their place in every queue; the runs then fail with
+// a CancelledException. One token can be shared by any number of runs, e.g. a whole batch, and cancelling
+// it costs one small action per call or wait in progress, with no thread woken besides blocked callers.
+// A cancel first marks the token and every token linked to it, and only then runs their actions, so the
+// work of the last run is seen to be cancelled, e.g. no longer polled, while the first runs are still
+// being stopped.
+//
+// Tasks already created keep running on the server. With a TaskJournal they stay outstanding, so
+// resumeAsync() can pick them up later.
+public final class CancellationToken {
+
+    // Never cancelled.
+    public static final CancellationToken none = new CancellationToken();
+
+    private static final Registration unregistered = new Registration(null, null, null);
+
+    // What to run on cancel, or the linked token to cancel. Whoever removes a registration from the set,
+    // cancel() or remove(), owns it, so each action runs at most once.
+    static final class Registration {
+        private final CancellationToken token;
+        private final Runnable action;
+        // null for an action
+        private final CancellationToken linked;
+
+        private Registration(CancellationToken token, Runnable action, CancellationToken linked) {
+            this.token = token;
+            this.action = action;
+            this.linked = linked;
+        }
+
+        private void run() {
+            if (linked != null) {
+                linked.cancel();
+            } else {
+                action.run();
+            }
+        }
+
+        void remove() {
+            if (token != null) token.registrations.remove(this);
+        }
+    }
+
+    private final Set<Registration> registrations = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean marked = new AtomicBoolean();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    public void cancel() {
+        if (this == none) throw new UnsupportedOperationException("CancellationToken.none cannot be cancelled");
+        mark();
+        runActions();
+    }
+
+    private void mark() {
+        if (!marked.compareAndSet(false, true)) return;
+        cancelled.countDown();
+        for (Registration registration : registrations) {
+            if (registration.linked != null) registration.linked.mark();
+        }
+    }
+
+    private void runActions() {
+        for (Registration registration : registrations) {
+            if (registrations.remove(registration)) registration.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    // Runs action once the token is cancelled, at once when it already is. Calls and waits remove their
+    // registration when they end, so the token holds only what is still in progress.
+    Registration onCancel(Runnable action) {
+        return register(action, null);
+    }
+
+    // Cancels linked with this token, until the registration is removed.
+    Registration link(CancellationToken linked) {
+        return register(null, linked);
+    }
+
+    private Registration register(Runnable action, CancellationToken linked) {
+        if (this == none) return unregistered;
+        Registration registration = new Registration(this, action, linked);
+        registrations.add(registration);
+        if (isCancelled() && registrations.remove(registration)) registration.run();
+        return registration;
+    }
+
+    // Waits up to timeout; true when the token was cancelled meanwhile.
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (this == none) {
+            unit.sleep(timeout);
+            return false;
+        }
+        return cancelled.await(timeout, unit);
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the exception raised when a job is cancelled.
+
+package com.foxit.simple_demo.client;
+
+import java.io.InterruptedIOException;
+
+// The job was stopped through its CancellationToken, or by cancelling the future of its run. Not retried.
+//
+// It has no stack trace: one cancel fails every call and wait of its jobs at once, e.g. those of the 10000
+// runs of a batch, where filling the traces cost more than the rest of the cancel, and each would only show
+// the thread that cancelled.
+public class CancelledException extends InterruptedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CancelledException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,296 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the per-endpoint circuit breaker.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Stops calling an endpoint ("document/convert", "task", ...) that is failing, so that workers do not
+// upload large documents into requests that will time out, while the other endpoints keep working.
+//
+// Each endpoint is closed while healthy, and the outcome of its last window_size calls is kept. Once at
+// least minimum_calls are known and the share of failures, or of calls slower than slow_call_threshold,
+// reaches its rate threshold, the endpoint opens: calls fail at once with a CircuitOpenException, before
+// anything is sent. After open_duration it is half-open: up to half_open_probes calls are let through, and
+// it closes again if they all succeed, or opens for another open_duration at the first that does not.
+//
+// A failure is a 5xx answer, a timeout or a connection error; other API errors are answers from a working
+// server, and 429 is left to the Throttle. Latency is measured from the end of the upload to the response
+// headers, as for the Throttle.
+public final class CircuitBreaker {
+
+    public enum State {
+        closed,
+        open,
+        half_open
+    }
+
+    public static final int default_window_size = 20;
+    public static final int default_minimum_calls = 10;
+    public static final double default_failure_rate_threshold = 0.5;
+    public static final long default_slow_call_threshold_in_miliseconds = 30000;
+    public static final double default_slow_call_rate_threshold = 0.5;
+    public static final long default_open_duration_in_miliseconds = 30000;
+    public static final int default_half_open_probes = 3;
+
+    static final CircuitBreaker none = new CircuitBreaker(null);
+
+    private static final byte failed_bit = 1;
+    private static final byte slow_bit = 2;
+
+    // The right to make one call; record() must be called once the call is over.
+    final class Call {
+        private final Endpoint endpoint;
+        private final boolean probe;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private Call(Endpoint endpoint, boolean probe) {
+            this.endpoint = endpoint;
+            this.probe = probe;
+        }
+
+        // latency_nanos is negative when unknown
+        void record(Throwable error, long latency_nanos) {
+            if (endpoint == null || !recorded.compareAndSet(false, true)) return;
+            Boolean failed = isFailure(error);
+            endpoint.record(this, failed, failed != null && latency_nanos > slow_call_threshold_nanos);
+        }
+    }
+
+    private final class Endpoint {
+        private final String name;
+        // all guarded by this
+        private final byte[] window = new byte[window_size];
+        private int next;
+        private int size;
+        private int failures;
+        private int slow_calls;
+        private State state = State.closed;
+        private long opened_at_nanos;
+        private int probes_in_flight;
+        private int probes_succeeded;
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        synchronized Call acquire() throws CircuitOpenException {
+            if (state == State.open) {
+                long open_nanos = System.nanoTime() - opened_at_nanos;
+                if (open_nanos < open_duration_nanos) {
+                    rejected.increment();
+                    throw new CircuitOpenException(name,
+                                                   TimeUnit.NANOSECONDS.toMillis(open_duration_nanos - open_nanos));
+                }
+                state = State.half_open;
+                probes_in_flight = 0;
+                probes_succeeded = 0;
+            }
+            if (state == State.half_open) {
+                if (probes_in_flight + probes_succeeded >= half_open_probes) {
+                    rejected.increment();
+                    throw new CircuitOpenException(name);
+                }
+                probes_in_flight++;
+                return new Call(this, true);
+            }
+            return new Call(this, false);
+        }
+
+        // failed is null when the call ended without telling anything about the endpoint, e.g. it was cancelled.
+        synchronized void record(Call call, Boolean failed, boolean slow) {
+            if (call.probe) {
+                if (state != State.half_open) return;
+                probes_in_flight--;
+                if (failed == null) return;
+                if (failed || slow) {
+                    open();
+                } else if (++probes_succeeded >= half_open_probes) {
+                    close();
+                }
+                return;
+            }
+            if (failed == null || state != State.closed) return;
+            byte outcome = (byte) ((failed ? failed_bit : 0) | (slow ? slow_bit : 0));
+            if (size == window_size) {
+                byte evicted = window[next];
+                if ((evicted & failed_bit) != 0) failures--;
+                if ((evicted & slow_bit) != 0) slow_calls--;
+            } else {
+                size++;
+            }
+            window[next] = outcome;
+            next = (next + 1) % window_size;
+            if (failed) failures++;
+            if (slow) slow_calls++;
+            if (size >= minimum_calls && (failures >= failure_rate_threshold * size
+                                          || slow_calls >= slow_call_rate_threshold * size)) {
+                open();
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        private void open() {
+            state = State.open;
+            opened_at_nanos = System.nanoTime();
+            opened.increment();
+        }
+
+        private void close() {
+            state = State.closed;
+            next = 0;
+            size = 0;
+            failures = 0;
+            slow_calls = 0;
+        }
+    }
+
+    private final int window_size;
+    private final int minimum_calls;
+    private final double failure_rate_threshold;
+    private final long slow_call_threshold_nanos;
+    private final double slow_call_rate_threshold;
+    private final long open_duration_nanos;
+    private final int half_open_probes;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    private CircuitBreaker(Builder builder) {
+        if (builder == null) builder = new Builder();
+        this.window_size = builder.window_size;
+        this.minimum_calls = builder.minimum_calls;
+        this.failure_rate_threshold = builder.failure_rate_threshold;
+        this.slow_call_threshold_nanos = TimeUnit.MILLISECONDS.toNanos(builder.slow_call_threshold_in_miliseconds);
+        this.slow_call_rate_threshold = builder.slow_call_rate_threshold;
+        this.open_duration_nanos = TimeUnit.MILLISECONDS.toNanos(builder.open_duration_in_miliseconds);
+        this.half_open_probes = builder.half_open_probes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Throws without sending anything while the endpoint is open.
+    Call acquire(String endpoint) throws CircuitOpenException {
+        if (this == none) return new Call(null, false);
+        Endpoint state = endpoints.get(endpoint);
+        if (state == null) state = endpoints.computeIfAbsent(endpoint, Endpoint::new);
+        return state.acquire();
+    }
+
+    public State getState(String endpoint) {
+        Endpoint state = endpoints.get(endpoint);
+        return state == null ? State.closed : state.state();
+    }
+
+    // Calls refused without being sent.
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    // Times an endpoint opened, including reopening after a failed probe.
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format("rejected=%d opened=%d", getRejectedCount(),
+                                                                getOpenedCount()));
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            summary.append(' ').append(entry.getKey()).append('=').append(entry.getValue().state());
+        }
+        return summary.toString();
+    }
+
+    // null when the outcome says nothing about the health of the endpoint
+    private static Boolean isFailure(Throwable error) {
+        error = TaskEngine.unwrap(error);
+        if (error == null) return false;
+        if (error instanceof RestException) return ((RestException) error).getHttpCode() >= 500;
+        if (error instanceof SocketTimeoutException) return true;
+        if (error instanceof InterruptedIOException) return null;
+        if (error instanceof IOException) return "Canceled".equals(error.getMessage()) ? null : true;
+        return null;
+    }
+
+    public static final class Builder {
+        private int window_size = default_window_size;
+        private int minimum_calls = default_minimum_calls;
+        private double failure_rate_threshold = default_failure_rate_threshold;
+        private long slow_call_threshold_in_miliseconds = default_slow_call_threshold_in_miliseconds;
+        private double slow_call_rate_threshold = default_slow_call_rate_threshold;
+        private long open_duration_in_miliseconds = default_open_duration_in_miliseconds;
+        private int half_open_probes = default_half_open_probes;
+
+        private Builder() {
+        }
+
+        // The number of recent calls the rates are computed over, and how many must be known first.
+        public Builder window(int window_size, int minimum_calls) {
+            if (minimum_calls <= 0 || minimum_calls > window_size) {
+                throw new IllegalArgumentException("Expected 0 < minimum_calls <= window_size");
+            }
+            this.window_size = window_size;
+            this.minimum_calls = minimum_calls;
+            return this;
+        }
+
+        public Builder failureRateThreshold(double failure_rate_threshold) {
+            this.failure_rate_threshold = requireRate(failure_rate_threshold);
+            return this;
+        }
+
+        // Calls slower than slow_call_threshold count as slow, and the endpoint opens once their share
+        // reaches slow_call_rate_threshold.
+        public Builder slowCalls(long slow_call_threshold_in_miliseconds, double slow_call_rate_threshold) {
+            if (slow_call_threshold_in_miliseconds <= 0) {
+                throw new IllegalArgumentException("slow_call_threshold must be positive");
+            }
+            this.slow_call_threshold_in_miliseconds = slow_call_threshold_in_miliseconds;
+            this.slow_call_rate_threshold = requireRate(slow_call_rate_threshold);
+            return this;
+        }
+
+        public Builder openDuration(long open_duration_in_miliseconds) {
+            if (open_duration_in_miliseconds < 0) throw new IllegalArgumentException("open_duration must not be negative");
+            this.open_duration_in_miliseconds = open_duration_in_miliseconds;
+            return this;
+        }
+
+        public Builder halfOpenProbes(int half_open_probes) {
+            if (half_open_probes <= 0) throw new IllegalArgumentException("half_open_probes must be positive");
+            this.half_open_probes = half_open_probes;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+
+        private static double requireRate(double rate) {
+            if (rate <= 0 || rate > 1) throw new IllegalArgumentException("Expected a rate in (0, 1]");
+            return rate;
+        }
+    }
+}
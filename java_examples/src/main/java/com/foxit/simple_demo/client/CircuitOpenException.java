@@ -0,0 +1,42 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the exception raised when a circuit breaker turns a call away.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+
+// The endpoint failed too often lately, so the call was refused without sending anything.
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpoint;
+    private final long retry_after_in_miliseconds;
+
+    public CircuitOpenException(String endpoint) {
+        this(endpoint, 0);
+    }
+
+    CircuitOpenException(String endpoint, long retry_after_in_miliseconds) {
+        super("Circuit open for " + endpoint + ", not calling it until it recovers");
+        this.endpoint = endpoint;
+        this.retry_after_in_miliseconds = retry_after_in_miliseconds;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    // Time until the endpoint lets a probe through, 0 when unknown, e.g. while its probes are running.
+    public long getRetryAfterInMiliseconds() {
+        return retry_after_in_miliseconds;
+    }
+}
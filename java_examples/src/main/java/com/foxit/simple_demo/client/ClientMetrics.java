@@ -0,0 +1,199 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the registry of the per endpoint metrics of a client.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpServer;
+
+// The EndpointMetrics of one client, each created when its endpoint is first called. Besides reading them
+// directly, they can be registered as MXBeans, one per endpoint, and written in the Prometheus text format,
+// also over HTTP with servePrometheus, using nothing but the JDK:
+//
+//   client.engine().getMetrics().registerMBeans("batch");
+//   HttpServer server = client.engine().getMetrics().servePrometheus(new InetSocketAddress(9464));
+//
+// Prometheus histograms get one bucket per power of two milliseconds, up to about an hour, summed up from
+// the finer buckets of the LatencyHistograms. Those of endpoints that recorded nothing, e.g. the task
+// histograms of "download", are left out.
+public final class ClientMetrics {
+
+    private static final int max_latency_power = 22;
+    private static final int max_polls_power = 12;
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    // the client name the endpoints are registered under with JMX, null when they are not
+    private String mbean_client;
+
+    EndpointMetrics endpoint(String endpoint) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if (metrics != null) return metrics;
+        EndpointMetrics fresh = new EndpointMetrics(endpoint);
+        // inserted under the lock of registerMBeans, so the new endpoint is registered exactly once: by
+        // registerMBeans when it sees it, or here when it ran before
+        synchronized (this) {
+            metrics = endpoints.putIfAbsent(endpoint, fresh);
+            if (metrics != null) return metrics;
+            if (mbean_client != null) register(fresh);
+        }
+        return fresh;
+    }
+
+    // By endpoint name.
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+    }
+
+    // Registers every endpoint, present and future, with the platform MBeanServer as
+    // com.foxit.simple_demo:type=EndpointMetrics,client=<client_name>,endpoint=<endpoint>.
+    public synchronized void registerMBeans(String client_name) throws JMException {
+        if (mbean_client != null) throw new IllegalStateException("Already registered as " + mbean_client);
+        mbean_client = client_name;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            register(metrics);
+        }
+    }
+
+    public synchronized void unregisterMBeans() throws JMException {
+        if (mbean_client == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (EndpointMetrics metrics : endpoints.values()) {
+            ObjectName name = objectName(metrics);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        }
+        mbean_client = null;
+    }
+
+    private void register(EndpointMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(metrics));
+        } catch (JMException e) {
+            // e.g. another client registered under the same name
+            throw new IllegalStateException("Cannot register the metrics of " + metrics.getEndpoint(), e);
+        }
+    }
+
+    private ObjectName objectName(EndpointMetrics metrics) throws JMException {
+        return new ObjectName("com.foxit.simple_demo:type=EndpointMetrics,client=" + ObjectName.quote(mbean_client)
+                              + ",endpoint=" + ObjectName.quote(metrics.getEndpoint()));
+    }
+
+    // Serves toPrometheus() at /metrics until the returned server is stopped.
+    public HttpServer servePrometheus(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // A snapshot in the Prometheus text exposition format, with durations in seconds.
+    public String toPrometheus() {
+        Map<String, EndpointMetrics> snapshot = getEndpoints();
+        StringBuilder out = new StringBuilder();
+        counter(out, snapshot, "foxit_requests_total", "Requests sent.", EndpointMetrics::getRequests);
+        counter(out, snapshot, "foxit_request_failures_total", "Requests that ended in an error.",
+                EndpointMetrics::getFailures);
+        counter(out, snapshot, "foxit_uploaded_bytes_total", "Bytes of request bodies sent.",
+                EndpointMetrics::getBytesUploaded);
+        counter(out, snapshot, "foxit_downloaded_bytes_total", "Bytes of results downloaded.",
+                EndpointMetrics::getBytesDownloaded);
+        histogram(out, snapshot, "foxit_request_duration_seconds",
+                  "From sending a request to the end of its handling, uploads and downloads included.",
+                  EndpointMetrics::getLatency, max_latency_power, 1000.0);
+        histogram(out, snapshot, "foxit_task_processing_seconds",
+                  "From the start of polling a task to the status request that found it completed.",
+                  EndpointMetrics::getProcessingTime, max_latency_power, 1000.0);
+        histogram(out, snapshot, "foxit_task_polls", "Status requests per completed task.",
+                  EndpointMetrics::getTaskPolls, max_polls_power, 1.0);
+        return out.toString();
+    }
+
+    private interface CounterValue {
+        long of(EndpointMetrics metrics);
+    }
+
+    private interface HistogramValue {
+        LatencyHistogram of(EndpointMetrics metrics);
+    }
+
+    private static void counter(StringBuilder out, Map<String, EndpointMetrics> snapshot, String name, String help,
+                                CounterValue value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            out.append(name).append("{endpoint=\"").append(escape(metrics.getEndpoint())).append("\"} ")
+               .append(value.of(metrics)).append('\n');
+        }
+    }
+
+    // Buckets end at 2^k - 1 for k up to max_power, which are bucket bounds of the LatencyHistogram, and the
+    // count is that of the buckets, so it always matches the +Inf bucket.
+    private static void histogram(StringBuilder out, Map<String, EndpointMetrics> snapshot, String name,
+                                  String help, HistogramValue value, int max_power, double unit) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            LatencyHistogram histogram = value.of(metrics);
+            if (histogram.getCount() == 0) continue;
+            String label = "endpoint=\"" + escape(metrics.getEndpoint()) + "\"";
+            long cumulative = 0;
+            int bucket = 0;
+            for (int power = 1; power <= max_power; power++) {
+                long bound = (1L << power) - 1;
+                for (; bucket < histogram.bucketCount() && LatencyHistogram.upperBound(bucket) <= bound; bucket++) {
+                    cumulative += histogram.bucketValue(bucket);
+                }
+                out.append(name).append("_bucket{").append(label).append(",le=\"").append(bound / unit)
+                   .append("\"} ").append(cumulative).append('\n');
+            }
+            for (; bucket < histogram.bucketCount(); bucket++) {
+                cumulative += histogram.bucketValue(bucket);
+            }
+            out.append(name).append("_bucket{").append(label).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum{").append(label).append("} ").append(histogram.getSum() / unit).append('\n');
+            out.append(name).append("_count{").append(label).append("} ").append(cumulative).append('\n');
+        }
+    }
+
+    private static String escape(String label_value) {
+        return label_value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (EndpointMetrics metrics : getEndpoints().values()) {
+            if (text.length() > 0) text.append('\n');
+            text.append(metrics);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,48 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the client credentials used to sign Foxit Cloud API requests.
+
+package com.foxit.simple_demo.client;
+
+import java.io.FileReader;
+import java.io.IOException;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public final class Credentials {
+
+    private final String client_id;
+    private final String secret_id;
+
+    public Credentials(String client_id, String secret_id) {
+        this.client_id = client_id;
+        this.secret_id = secret_id;
+    }
+
+    public static Credentials load(String credentials_path) throws IOException {
+        // Read clientId and secretId form the json file.
+        try(FileReader reader = new FileReader(credentials_path)) {
+            JsonParser parser = new JsonParser();
+            JsonObject object = (JsonObject) parser.parse(reader);
+            JsonObject object_client = object.get("client_credentials").getAsJsonObject();
+            return new Credentials(object_client.get("client_id").getAsString(),
+                                   object_client.get("secret_id").getAsString());
+        }
+    }
+
+    public String getClientId() {
+        return client_id;
+    }
+
+    String getSecretId() {
+        return secret_id;
+    }
+}
@@ -0,0 +1,26 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the exception raised when a job runs out of time.
+
+package com.foxit.simple_demo.client;
+
+import java.io.InterruptedIOException;
+
+// The overall deadline of a job, from its submission to its downloaded result, passed before it finished.
+// Not retried: the time given to the job is spent. A task it submitted may still complete on the server,
+// and with a TaskJournal can be resumed later.
+public class DeadlineExceededException extends InterruptedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,277 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the on-disk, content-addressed cache of operation results.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+// One file per result, named after its OperationKey, in a single directory. The index lives in memory in
+// least-recently-used order and is rebuilt from the directory on open, ordered by modification time:
+// every hit touches its file, so the LRU order survives a restart.
+//
+// Entries are written to a temporary file and renamed into place, so a crash never leaves a partial
+// entry under a valid name. When compression is on, an entry is stored gzipped only if that makes it
+// smaller; already compressed outputs (most PDFs, images) are stored as they are.
+public final class DiskResultCache implements ResultStore {
+
+    public static final long default_max_bytes = 1L << 30;
+
+    private static final String plain_suffix = ".bin";
+    private static final String compressed_suffix = ".gz";
+    private static final String temp_suffix = ".tmp";
+
+    private static final class Entry {
+        private final boolean compressed;
+        private final long size;
+
+        Entry(boolean compressed, long size) {
+            this.compressed = compressed;
+            this.size = size;
+        }
+    }
+
+    private final Path directory;
+    private final long max_bytes;
+    private final boolean compress;
+    private final CacheMetrics metrics = new CacheMetrics();
+    // Access-ordered, least recently used first. Guarded by itself, together with total_bytes and
+    // every rename and delete in the directory.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long total_bytes;
+
+    private DiskResultCache(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.max_bytes = builder.max_bytes;
+        this.compress = builder.compress;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    public static DiskResultCache open(Path directory) throws IOException {
+        return builder(directory).build();
+    }
+
+    @Override
+    public boolean get(String key, Path output_path) throws IOException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            metrics.recordMiss();
+            return false;
+        }
+        Path file = entryPath(key, entry);
+        Path part_path = output_path.resolveSibling(output_path.getFileName() + ".part");
+        try {
+            if (entry.compressed) {
+                try (Source source = new GzipSource(Okio.source(file));
+                     BufferedSink sink = Okio.buffer(Okio.sink(part_path))) {
+                    sink.writeAll(source);
+                }
+            } else {
+                Files.copy(file, part_path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(part_path, output_path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            // removed behind our back, e.g. by a cleanup job
+            Files.deleteIfExists(part_path);
+            forget(key, entry);
+            metrics.recordMiss();
+            return false;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part_path);
+            throw e;
+        }
+        touch(file);
+        metrics.recordHit();
+        return true;
+    }
+
+    @Override
+    public void put(String key, Path result_path) throws IOException {
+        synchronized (entries) {
+            // the key is a hash of everything the result depends on, so an existing entry is the same result
+            if (entries.containsKey(key)) return;
+        }
+        long result_size = Files.size(result_path);
+        if (result_size > max_bytes) return;
+
+        Path temp_path = Files.createTempFile(directory, key, temp_suffix);
+        try {
+            boolean compressed = false;
+            if (compress) {
+                try (Source source = Okio.source(result_path);
+                     BufferedSink sink = Okio.buffer(new GzipSink(Okio.sink(temp_path)))) {
+                    sink.writeAll(source);
+                }
+                compressed = Files.size(temp_path) < result_size;
+            }
+            if (!compressed) {
+                Files.copy(result_path, temp_path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Entry entry = new Entry(compressed, Files.size(temp_path));
+            synchronized (entries) {
+                if (entries.containsKey(key)) return;
+                Files.move(temp_path, entryPath(key, entry), StandardCopyOption.ATOMIC_MOVE);
+                entries.put(key, entry);
+                total_bytes += entry.size;
+                evict();
+            }
+            metrics.recordStore();
+        } finally {
+            Files.deleteIfExists(temp_path);
+        }
+    }
+
+    @Override
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return max_bytes;
+    }
+
+    public long getSizeInBytes() {
+        synchronized (entries) {
+            return total_bytes;
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Caller holds the lock on entries.
+    private void evict() throws IOException {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (total_bytes > max_bytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            total_bytes -= evicted.getValue().size;
+            Files.deleteIfExists(entryPath(evicted.getKey(), evicted.getValue()));
+            metrics.recordEviction();
+        }
+    }
+
+    private void forget(String key, Entry entry) {
+        synchronized (entries) {
+            if (entries.remove(key, entry)) {
+                total_bytes -= entry.size;
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(temp_suffix)) {
+                    // left behind by a crash in the middle of put
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(plain_suffix) || name.endsWith(compressed_suffix)) {
+                    files.add(file);
+                }
+            }
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(modified::get));
+
+        synchronized (entries) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean compressed = name.endsWith(compressed_suffix);
+                String key = name.substring(0, name.length() - (compressed ? compressed_suffix : plain_suffix).length());
+                Entry entry = new Entry(compressed, Files.size(file));
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    // stored both ways by instances with different settings; keep the most recent
+                    total_bytes -= previous.size;
+                    Files.deleteIfExists(entryPath(key, previous));
+                }
+                total_bytes += entry.size;
+            }
+            evict();
+        }
+    }
+
+    private Path entryPath(String key, Entry entry) {
+        return directory.resolve(key + (entry.compressed ? compressed_suffix : plain_suffix));
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only the LRU order after a restart depends on it
+        }
+    }
+
+    public static final class Builder {
+        private final Path directory;
+        private long max_bytes = default_max_bytes;
+        private boolean compress;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        // Least recently used entries are removed once the stored bytes exceed this.
+        public Builder maxBytes(long max_bytes) {
+            this.max_bytes = max_bytes;
+            return this;
+        }
+
+        // Stores entries gzipped where that makes them smaller; reads decompress transparently.
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        public DiskResultCache build() throws IOException {
+            return new DiskResultCache(this);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the metrics of one endpoint.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// What the client saw of one endpoint, e.g. "document/compress", "task" or "download". Every request sent
+// is counted, and its latency runs from sending it to the end of its handling, so for a submission it
+// includes uploading the document and for a download receiving the result. Failures are the requests that
+// ended in an error, including timeouts and cancellations.
+//
+// The tasks of an operation are counted under its endpoint once a status request finds them completed,
+// with the time since their polling started, i.e. the server's queue and processing time to within one
+// polling interval, and the status requests that took. Tasks polled on their own, with pollForDocId, are
+// counted under "task".
+//
+// Everything is striped counters and LatencyHistograms, so recording takes no lock.
+public final class EndpointMetrics implements EndpointMetricsMXBean {
+
+    private final String endpoint;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes_uploaded = new LongAdder();
+    private final LongAdder bytes_downloaded = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram processing = new LatencyHistogram();
+    private final LatencyHistogram polls = new LatencyHistogram();
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    // bytes_uploaded is the size of the request body, 0 when there is none or its size is unknown.
+    void recordRequest(long bytes_uploaded, long latency_in_miliseconds, boolean failed) {
+        requests.increment();
+        if (failed) failures.increment();
+        if (bytes_uploaded > 0) this.bytes_uploaded.add(bytes_uploaded);
+        latency.record(latency_in_miliseconds);
+    }
+
+    void recordDownloaded(long bytes) {
+        bytes_downloaded.add(bytes);
+    }
+
+    void recordTask(long processing_in_miliseconds, int status_requests) {
+        processing.record(processing_in_miliseconds);
+        polls.record(status_requests);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getBytesUploaded() {
+        return bytes_uploaded.sum();
+    }
+
+    @Override
+    public long getBytesDownloaded() {
+        return bytes_downloaded.sum();
+    }
+
+    // In miliseconds.
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // In miliseconds, one value per completed task.
+    public LatencyHistogram getProcessingTime() {
+        return processing;
+    }
+
+    // Status requests per completed task.
+    public LatencyHistogram getTaskPolls() {
+        return polls;
+    }
+
+    @Override
+    public long getLatencyP50Miliseconds() {
+        return latency.getPercentile(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Miliseconds() {
+        return latency.getPercentile(0.99);
+    }
+
+    @Override
+    public long getLatencyMaxMiliseconds() {
+        return latency.getMax();
+    }
+
+    @Override
+    public long getTasks() {
+        return processing.getCount();
+    }
+
+    @Override
+    public long getProcessingP50Miliseconds() {
+        return processing.getPercentile(0.5);
+    }
+
+    @Override
+    public long getProcessingP99Miliseconds() {
+        return processing.getPercentile(0.99);
+    }
+
+    @Override
+    public double getPollsPerTask() {
+        return polls.getMean();
+    }
+
+    @Override
+    public String toString() {
+        String text = String.format("%s requests=%d failures=%d up=%d down=%d latency[%s]", endpoint, getRequests(),
+                                    getFailures(), getBytesUploaded(), getBytesDownloaded(), latency);
+        if (getTasks() == 0) return text;
+        return text + String.format(" tasks=%d processing[%s] polls/task=%.2f", getTasks(), processing,
+                                    getPollsPerTask());
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the JMX view of the metrics of one endpoint.
+
+package com.foxit.simple_demo.client;
+
+// The attributes of one endpoint's EndpointMetrics as registered by ClientMetrics.registerMBeans.
+public interface EndpointMetricsMXBean {
+
+    long getRequests();
+
+    long getFailures();
+
+    long getBytesUploaded();
+
+    long getBytesDownloaded();
+
+    long getLatencyP50Miliseconds();
+
+    long getLatencyP99Miliseconds();
+
+    long getLatencyMaxMiliseconds();
+
+    long getTasks();
+
+    long getProcessingP50Miliseconds();
+
+    long getProcessingP99Miliseconds();
+
+    double getPollsPerTask();
+}
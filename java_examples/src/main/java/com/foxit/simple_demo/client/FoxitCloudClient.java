@@ -0,0 +1,362 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the Foxit Cloud API client used by every example.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+// A thin typed layer over the shared TaskEngine. Clients are immutable and thread-safe,
+// and by default they all share the process-wide Transport. Closing a client only stops keeping its
+// connections warm; the transport itself stays open for the other clients.
+public final class FoxitCloudClient implements AutoCloseable {
+
+    public static final String default_base_url = "https://servicesapi.foxitsoftware.cn/api";
+    public static final int default_max_concurrent_polls = 64;
+
+    private final TaskEngine engine;
+    private final OkHttpClient http_client;
+    private final HttpUrl base_url;
+    // null when the builder was given an http client of its own, whose settings are unknown
+    private final TransportProfile transport_profile;
+    private final Transport.KeepWarm keep_warm;
+
+    private FoxitCloudClient(Builder builder) {
+        this.engine = new TaskEngine(builder.http_client, builder.base_url, builder.credentials,
+                                     builder.listener, builder.poll_strategy, builder.max_concurrent_polls,
+                                     builder.result_store, builder.coalesce_runs, builder.download_store,
+                                     builder.journal, builder.throttle, builder.retry_policy,
+                                     builder.hedge_downloads, builder.circuit_breaker, builder.timeout_policy);
+        this.http_client = builder.http_client;
+        this.base_url = HttpUrl.parse(builder.base_url);
+        this.transport_profile = builder.transport_profile;
+        if (transport_profile != null) {
+            prewarm(transport_profile.getPrewarmConnections());
+        }
+        this.keep_warm = transport_profile == null || transport_profile.getKeepWarmIntervalInMiliseconds() <= 0 ? null
+            : Transport.keepWarm(http_client, base_url, transport_profile.getPrewarmConnections(),
+                                 transport_profile.getKeepWarmIntervalInMiliseconds());
+    }
+
+    // Opens connections to the API host ahead of the first request; done by build() as configured in the
+    // TransportProfile. The future completes with the number of distinct connections that answered, one
+    // over HTTP/2 however many were asked for.
+    public CompletableFuture<Integer> prewarm(int connections) {
+        return Transport.prewarm(http_client, base_url, connections);
+    }
+
+    // Continues the tasks left outstanding in the journal, see TaskEngine.resumeAsync.
+    public List<CompletableFuture<Path>> resumeAsync() {
+        return engine.resumeAsync();
+    }
+
+    @Override
+    public void close() {
+        if (keep_warm != null) keep_warm.cancel();
+    }
+
+    public static Builder builder(Credentials credentials) {
+        return new Builder(credentials);
+    }
+
+    public TaskEngine engine() {
+        return engine;
+    }
+
+    public Path run(OperationRequest operation, String output_file_path) throws IOException, InterruptedException {
+        return engine.run(operation, output_file_path);
+    }
+
+    // Stops with a CancelledException, from any point of the workflow, once the token is cancelled.
+    public Path run(OperationRequest operation, String output_file_path, CancellationToken token)
+            throws IOException, InterruptedException {
+        return engine.run(operation, output_file_path, token);
+    }
+
+    // Non-blocking variant: uploads, polls and downloads without holding a thread between status requests.
+    // Cancelling the returned future stops the run, as does cancelling the token.
+    public CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path) {
+        return engine.runAsync(operation, output_file_path);
+    }
+
+    public CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path,
+                                            CancellationToken token) {
+        return engine.runAsync(operation, output_file_path, token);
+    }
+
+    public Path combine(String input_zip_file, String config, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.combine(input_zip_file, config), output_file_path);
+    }
+
+    public Path compare(String input_file_base, String input_file_compare, String result_type, String compare_type,
+                        String output_file_path) throws IOException, InterruptedException {
+        return run(Operations.compare(input_file_base, input_file_compare, result_type, compare_type), output_file_path);
+    }
+
+    public Path compress(String input_file_path, String compression_level, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.compress(input_file_path, compression_level), output_file_path);
+    }
+
+    public Path convert(String input_file_path, String format, String config, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.convert(input_file_path, format, config), output_file_path);
+    }
+
+    public Path createFromHtml(String url, String format, String config, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.createFromHtml(url, format, config), output_file_path);
+    }
+
+    public Path create(String input_file, String format, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.create(input_file, format), output_file_path);
+    }
+
+    public Path extract(String input_file_path, String mode, String page_range, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.extract(input_file_path, mode, page_range), output_file_path);
+    }
+
+    public Path flatten(String input_file_path, String page_range, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.flatten(input_file_path, page_range), output_file_path);
+    }
+
+    public Path linearize(String input_file_path, String output_file_path) throws IOException, InterruptedException {
+        return run(Operations.linearize(input_file_path), output_file_path);
+    }
+
+    public Path manipulation(String input_file_path, String config, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.manipulation(input_file_path, config), output_file_path);
+    }
+
+    public Path protect(String input_file_path, String password_protection, String permission,
+                        String encryption_algorithm, String output_file_path) throws IOException, InterruptedException {
+        return run(Operations.protect(input_file_path, password_protection, permission, encryption_algorithm),
+                   output_file_path);
+    }
+
+    public Path removePassword(String input_file_path, String password, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.removePassword(input_file_path, password), output_file_path);
+    }
+
+    public Path split(String input_file_path, String config, String output_file_path)
+            throws IOException, InterruptedException {
+        return run(Operations.split(input_file_path, config), output_file_path);
+    }
+
+    public CompletableFuture<Path> combineAsync(String input_zip_file, String config, String output_file_path) {
+        return runAsync(Operations.combine(input_zip_file, config), output_file_path);
+    }
+
+    public CompletableFuture<Path> compareAsync(String input_file_base, String input_file_compare, String result_type,
+                                                String compare_type, String output_file_path) {
+        return runAsync(Operations.compare(input_file_base, input_file_compare, result_type, compare_type),
+                        output_file_path);
+    }
+
+    public CompletableFuture<Path> compressAsync(String input_file_path, String compression_level,
+                                                 String output_file_path) {
+        return runAsync(Operations.compress(input_file_path, compression_level), output_file_path);
+    }
+
+    public CompletableFuture<Path> convertAsync(String input_file_path, String format, String config,
+                                                String output_file_path) {
+        return runAsync(Operations.convert(input_file_path, format, config), output_file_path);
+    }
+
+    public CompletableFuture<Path> createFromHtmlAsync(String url, String format, String config,
+                                                       String output_file_path) {
+        return runAsync(Operations.createFromHtml(url, format, config), output_file_path);
+    }
+
+    public CompletableFuture<Path> createAsync(String input_file, String format, String output_file_path) {
+        return runAsync(Operations.create(input_file, format), output_file_path);
+    }
+
+    public CompletableFuture<Path> extractAsync(String input_file_path, String mode, String page_range,
+                                                String output_file_path) {
+        return runAsync(Operations.extract(input_file_path, mode, page_range), output_file_path);
+    }
+
+    public CompletableFuture<Path> flattenAsync(String input_file_path, String page_range, String output_file_path) {
+        return runAsync(Operations.flatten(input_file_path, page_range), output_file_path);
+    }
+
+    public CompletableFuture<Path> linearizeAsync(String input_file_path, String output_file_path) {
+        return runAsync(Operations.linearize(input_file_path), output_file_path);
+    }
+
+    public CompletableFuture<Path> manipulationAsync(String input_file_path, String config, String output_file_path) {
+        return runAsync(Operations.manipulation(input_file_path, config), output_file_path);
+    }
+
+    public CompletableFuture<Path> protectAsync(String input_file_path, String password_protection, String permission,
+                                                String encryption_algorithm, String output_file_path) {
+        return runAsync(Operations.protect(input_file_path, password_protection, permission, encryption_algorithm),
+                        output_file_path);
+    }
+
+    public CompletableFuture<Path> removePasswordAsync(String input_file_path, String password,
+                                                       String output_file_path) {
+        return runAsync(Operations.removePassword(input_file_path, password), output_file_path);
+    }
+
+    public CompletableFuture<Path> splitAsync(String input_file_path, String config, String output_file_path) {
+        return runAsync(Operations.split(input_file_path, config), output_file_path);
+    }
+
+    public static final class Builder {
+        private final Credentials credentials;
+        private String base_url = default_base_url;
+        private OkHttpClient http_client;
+        private TransportProfile transport_profile;
+        private TaskListener listener = TaskListener.NONE;
+        private PollStrategy poll_strategy = PollStrategy.adaptive();
+        private int max_concurrent_polls = default_max_concurrent_polls;
+        private ResultStore result_store;
+        private boolean coalesce_runs;
+        private ResultStore download_store;
+        private TaskJournal journal;
+        private Throttle throttle;
+        private RetryPolicy retry_policy = RetryPolicy.defaults();
+        private boolean hedge_downloads;
+        private CircuitBreaker circuit_breaker;
+        private TimeoutPolicy timeout_policy = TimeoutPolicy.defaults();
+
+        private Builder(Credentials credentials) {
+            this.credentials = credentials;
+        }
+
+        public Builder baseUrl(String base_url) {
+            this.base_url = base_url;
+            return this;
+        }
+
+        // Overrides the shared transport, e.g. to point a test at a stand-in server.
+        public Builder httpClient(OkHttpClient http_client) {
+            this.http_client = http_client;
+            this.transport_profile = null;
+            return this;
+        }
+
+        // Gives this client a transport of its own with these settings instead of the shared one.
+        public Builder transport(TransportProfile transport_profile) {
+            this.http_client = Transport.create(transport_profile);
+            this.transport_profile = transport_profile;
+            return this;
+        }
+
+        public Builder listener(TaskListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        // Polls at a fixed interval instead of the default adaptive strategy.
+        public Builder pollInterval(int poll_interval_in_miliseconds) {
+            return pollStrategy(PollStrategy.fixed(poll_interval_in_miliseconds));
+        }
+
+        public Builder pollStrategy(PollStrategy poll_strategy) {
+            this.poll_strategy = poll_strategy;
+            return this;
+        }
+
+        // Caps the status requests in flight for asynchronously polled tasks; further due polls wait their turn.
+        public Builder maxConcurrentPolls(int max_concurrent_polls) {
+            this.max_concurrent_polls = max_concurrent_polls;
+            return this;
+        }
+
+        // Serves repeated operations on byte-identical inputs from the store, e.g. a DiskResultCache.
+        // Off by default. Inputs given as an InputStream are never cached, as they cannot be hashed up front.
+        public Builder resultStore(ResultStore result_store) {
+            this.result_store = result_store;
+            return this;
+        }
+
+        // Concurrent runs of the same operation on byte-identical inputs share one upload, task and download.
+        // Off by default, as it costs a hash of every input before the upload starts.
+        public Builder coalesceRuns(boolean coalesce_runs) {
+            this.coalesce_runs = coalesce_runs;
+            return this;
+        }
+
+        // Serves repeated downloads of the same docId and file name from the store. Can be the same store as
+        // resultStore, the keys do not collide.
+        public Builder downloadStore(ResultStore download_store) {
+            this.download_store = download_store;
+            return this;
+        }
+
+        // Records every submitted task until its result is downloaded, so that a rerun of the same input picks
+        // up its task instead of uploading it again; TaskJournal.inMemory does so for the lifetime of the
+        // process. A persistent journal, TaskJournal.open(path), does so across restarts, and its tasks can be
+        // continued with resumeAsync(). Off by default, as matching reruns costs a hash of every input before
+        // the upload starts; without a journal resumeAsync() only continues the tasks of this client.
+        public Builder journal(TaskJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        // Paces requests and adapts how many run at once per endpoint, see Throttle. Off by default.
+        public Builder throttle(Throttle throttle) {
+            this.throttle = throttle;
+            return this;
+        }
+
+        // Status and download calls that fail transiently are tried again, with jittered exponential
+        // backoff; submissions only when no task can have been created. RetryPolicy.none turns it off.
+        public Builder retryPolicy(RetryPolicy retry_policy) {
+            this.retry_policy = retry_policy;
+            return this;
+        }
+
+        // Starts a second download of a result whose first one is slower to answer than 95% of downloads,
+        // and keeps whichever answers first. Off by default, as it adds about 5% of download requests.
+        public Builder hedgeDownloads(boolean hedge_downloads) {
+            this.hedge_downloads = hedge_downloads;
+            return this;
+        }
+
+        // Fails calls to an endpoint at once, without uploading, while it is failing, see CircuitBreaker.
+        // Off by default.
+        public Builder circuitBreaker(CircuitBreaker circuit_breaker) {
+            this.circuit_breaker = circuit_breaker;
+            return this;
+        }
+
+        // Sets the deadline of every call from its kind, the size of the upload and the throughput seen so far,
+        // and bounds each document, from upload to downloaded result, by one job deadline; see TimeoutPolicy.
+        // TimeoutPolicy.none leaves only the transport's timeouts.
+        public Builder timeoutPolicy(TimeoutPolicy timeout_policy) {
+            this.timeout_policy = timeout_policy;
+            return this;
+        }
+
+        public FoxitCloudClient build() {
+            if (http_client == null) {
+                http_client = Transport.shared();
+                transport_profile = Transport.sharedProfile();
+            }
+            return new FoxitCloudClient(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the frequency sketch used for cache admission.
+
+package com.foxit.simple_demo.client;
+
+// A count-min sketch of 4-bit counters, the popularity estimate behind TinyLFU admission. Each key
+// maps to one counter in each of four rows; its frequency is the smallest of the four. Once as many
+// increments as ten times the capacity were recorded, every counter is halved, so the sketch follows
+// changes in popularity instead of remembering the distant past. Not thread-safe.
+final class FrequencySketch {
+
+    private static final long[] seeds = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long reset_mask = 0x7777777777777777L;
+    private static final int max_count = 15;
+
+    // 16 counters per long, row i of a key lives in table[index(key, i)] at nibble offset(key, i)
+    private final long[] table;
+    private final int table_mask;
+    private final int sample_size;
+    private int additions;
+
+    FrequencySketch(int expected_entries) {
+        int size = Integer.highestOneBit(Math.max(16, Math.min(expected_entries, 1 << 24)) - 1) << 1;
+        this.table = new long[size];
+        this.table_mask = size - 1;
+        this.sample_size = 10 * size;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = max_count;
+        for (int i = 0; i < 4; i++) {
+            int count = (int) ((table[index(hash, i)] >>> offset(hash, i)) & 0xf);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = index(hash, i);
+            int offset = offset(hash, i);
+            if (((table[index] >>> offset) & 0xf) < max_count) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sample_size) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & reset_mask;
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        long mixed = (hash + seeds[row]) * seeds[row];
+        return (int) (mixed ^ (mixed >>> 32)) & table_mask;
+    }
+
+    private static int offset(int hash, int row) {
+        // a different nibble of the long for each row
+        return (((hash >>> (row << 3)) & 3) << 2 | row) << 2;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
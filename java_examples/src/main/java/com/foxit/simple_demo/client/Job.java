@@ -0,0 +1,159 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the deadline and cancellation of one job.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// One document from submission to downloaded result: the point in time by which it must be done and
+// the token that cancels it, carried through its submission, polling and download. Every call and wait
+// of the job is bounded by both. Each job has a token of its own, cancelled with its caller's, so that
+// cancelling the future of one run does not cancel the others sharing the caller's token.
+final class Job {
+
+    // For calls made outside of a job, e.g. the status requests shared by every waiter on a task.
+    static final Job none = new Job(0, 0, CancellationToken.none, CancellationToken.none, null, null);
+
+    private final long timeout_in_miliseconds;
+    private final long deadline_nanos;
+    private final CancellationToken token;
+    // seen cancelled as soon as it is, before the cancel gets to mark this job's own token
+    private final CancellationToken caller;
+    // to the caller's token, null for none
+    private final CancellationToken.Registration link;
+    // for a shared job, whether every job waiting for it stopped; null otherwise
+    private final BooleanSupplier callers_stopped;
+
+    private Job(long timeout_in_miliseconds, long deadline_nanos, CancellationToken token, CancellationToken caller,
+                CancellationToken.Registration link, BooleanSupplier callers_stopped) {
+        this.timeout_in_miliseconds = timeout_in_miliseconds;
+        this.deadline_nanos = deadline_nanos;
+        this.token = token;
+        this.caller = caller;
+        this.link = link;
+        this.callers_stopped = callers_stopped;
+    }
+
+    // timeout_in_miliseconds 0 for no deadline.
+    static Job start(long timeout_in_miliseconds, CancellationToken caller) {
+        CancellationToken token = new CancellationToken();
+        long deadline_nanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout_in_miliseconds));
+        return new Job(Math.max(0, timeout_in_miliseconds), deadline_nanos, token, caller, caller.link(token),
+                       null);
+    }
+
+    // A job without a deadline for work that several jobs wait for, e.g. a coalesced call. It is stopped
+    // as soon as callers_stopped holds, so a cancel that marked every caller's token stops it too, before
+    // it gets to run the callers' actions; it is cancelled once its last caller left.
+    static Job shared(BooleanSupplier callers_stopped) {
+        return new Job(0, 0, new CancellationToken(), CancellationToken.none, null, callers_stopped);
+    }
+
+    void cancel() {
+        if (this != none) token.cancel();
+    }
+
+    // Unlinks the job from its caller's token once it is over.
+    void finish() {
+        if (link != null) link.remove();
+    }
+
+    CancellationToken.Registration onCancel(Runnable action) {
+        return token.onCancel(action);
+    }
+
+    // Long.MAX_VALUE when there is no deadline, 0 once it passed.
+    long remainingMiliseconds() {
+        if (timeout_in_miliseconds == 0) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline_nanos - System.nanoTime()));
+    }
+
+    boolean isStopped() {
+        return isCancelled() || (timeout_in_miliseconds != 0 && deadline_nanos - System.nanoTime() <= 0);
+    }
+
+    private boolean isCancelled() {
+        return token.isCancelled() || caller.isCancelled()
+               || (callers_stopped != null && callers_stopped.getAsBoolean());
+    }
+
+    // Why the job must not go on, null while it may.
+    IOException stopped(String what) {
+        if (isCancelled()) return cancelled(what);
+        if (timeout_in_miliseconds != 0 && deadline_nanos - System.nanoTime() <= 0) return exceeded(what);
+        return null;
+    }
+
+    void check(String what) throws IOException {
+        IOException stopped = stopped(what);
+        if (stopped != null) throw stopped;
+    }
+
+    // Waits up to delay_in_miliseconds, never past the deadline, and fails as soon as the job is cancelled.
+    void sleep(long delay_in_miliseconds, String what) throws IOException, InterruptedException {
+        if (token.await(Math.min(delay_in_miliseconds, remainingMiliseconds()), TimeUnit.MILLISECONDS)) {
+            throw cancelled(what);
+        }
+    }
+
+    // As sleep, for the sub-milisecond delays of a rate limit.
+    void sleepNanos(long delay_nanos, String what) throws IOException, InterruptedException {
+        long remaining_nanos = timeout_in_miliseconds == 0 ? Long.MAX_VALUE : deadline_nanos - System.nanoTime();
+        if (token.await(Math.min(delay_nanos, remaining_nanos), TimeUnit.NANOSECONDS)) throw cancelled(what);
+    }
+
+    // Fails the stage once the job is cancelled or its deadline passes, for waits on work the job does not
+    // own, e.g. a run coalesced with others: the work goes on, only this job stops waiting for it.
+    <T> CompletableFuture<T> bound(String what, CompletableFuture<T> stage) {
+        CancellationToken.Registration cancellation = onCancel(() -> failCancelled(stage, what));
+        long remaining = remainingMiliseconds();
+        TimerWheel.Timeout timer = remaining == Long.MAX_VALUE ? null : TimerWheel.shared().schedule(
+            () -> stage.completeExceptionally(exceeded(what)), remaining, TimeUnit.MILLISECONDS);
+        stage.whenComplete((value, error) -> {
+            cancellation.remove();
+            if (timer != null) timer.cancel();
+        });
+        return stage;
+    }
+
+    CancelledException cancelled(String what) {
+        return new CancelledException(what + " was cancelled");
+    }
+
+    // Fails stage with cancelled(what), already wrapped as the stages depending on it would wrap it, each in
+    // a CompletionException with a stack trace of its own otherwise; get() still throws it as the cause.
+    boolean failCancelled(CompletableFuture<?> stage, String what) {
+        return stage.completeExceptionally(new Cancellation(cancelled(what)));
+    }
+
+    // Without a stack trace, like the CancelledException it carries.
+    private static final class Cancellation extends CompletionException {
+
+        private static final long serialVersionUID = 1L;
+
+        Cancellation(CancelledException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    DeadlineExceededException exceeded(String what) {
+        return new DeadlineExceededException(what + " exceeded the job deadline of " + timeout_in_miliseconds + " ms");
+    }
+}
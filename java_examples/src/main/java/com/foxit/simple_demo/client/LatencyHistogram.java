@@ -0,0 +1,105 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains a log-linear latency histogram.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts values in log-linear buckets: 0 to 15 exactly, then every power of two split into 8 equal
+// buckets, so any value is known to within 12.5% with 488 buckets covering the whole long range.
+// Recording is a bucket computation and a striped increment, cheap enough for every request.
+public final class LatencyHistogram {
+
+    private static final int linear_buckets = 16;
+    private static final int sub_bucket_bits = 3;
+    private static final int sub_buckets = 1 << sub_bucket_bits;
+    private static final int bucket_count = linear_buckets + (63 - 4) * sub_buckets;
+
+    private final LongAdder[] buckets = new LongAdder[bucket_count];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < bucket_count; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0.0 : getSum() / (double) count;
+    }
+
+    // The upper bound of the bucket holding the value at quantile q (0 to 1), capped at the maximum seen.
+    public long getPercentile(double q) {
+        long total = getCount();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < bucket_count; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    int bucketCount() {
+        return bucket_count;
+    }
+
+    long bucketValue(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    static int bucketOf(long value) {
+        if (value < linear_buckets) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub_bucket = (int) (value >>> (exponent - sub_bucket_bits)) - sub_buckets;
+        return linear_buckets + (exponent - 4) * sub_buckets + sub_bucket;
+    }
+
+    // The largest value that falls in the bucket.
+    static long upperBound(int bucket) {
+        if (bucket < linear_buckets) return bucket;
+        int exponent = (bucket - linear_buckets) / sub_buckets + 4;
+        long sub_bucket = (bucket - linear_buckets) % sub_buckets + sub_buckets;
+        long width = 1L << (exponent - sub_bucket_bits);
+        return exponent == 62 && sub_bucket == 2 * sub_buckets - 1 ? Long.MAX_VALUE : (sub_bucket + 1) * width - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", getCount(), getMean(),
+                             getPercentile(0.5), getPercentile(0.9), getPercentile(0.99), getMax());
+    }
+}
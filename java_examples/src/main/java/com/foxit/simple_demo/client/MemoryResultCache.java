@@ -0,0 +1,372 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the off-heap in-memory cache of small operation results.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A memory tier in front of another ResultStore (typically a DiskResultCache), for small results that are
+// asked for again and again, such as extracted text or compare reports. Payloads live in direct
+// ByteBuffers, outside the Java heap, so a large cache adds nothing for the garbage collector to trace
+// or copy. getBuffer hands out read-only views of them without copying.
+//
+// Admission and eviction follow W-TinyLFU within a byte budget:
+//   window    - 1% of the budget, plain LRU, where every new entry starts
+//   probation - main space entries that were not hit since they were admitted
+//   protected - 80% of the main space, entries hit again while on probation
+// An entry pushed out of the window only enters the main space if the FrequencySketch rates it more
+// popular than the probation entry it would displace, so a burst of one-off results cannot flush the
+// entries that are actually reused.
+//
+// Lookups take no lock. Each one is recorded in the read stripe of its thread, a small ring of keys, and
+// the policy above catches up with them under the lock once a stripe fills up, or before the next entry
+// is admitted. A thread that finds the lock held leaves the draining to its holder, and a hit that finds
+// its stripe full is dropped: the policy loses some precision, never an entry.
+//
+// Memory of an evicted entry is released once the last view of it is unreachable; views handed out
+// earlier stay valid.
+public final class MemoryResultCache implements ResultStore {
+
+    public static final long default_max_entry_bytes = 1 << 20;
+
+    private static final int read_stripe_size = 16;
+    private static final int read_stripe_mask = read_stripe_size - 1;
+
+    private static final class Node {
+        private final String key;
+        private final ByteBuffer data;
+
+        Node(String key, ByteBuffer data) {
+            this.key = key;
+            this.data = data;
+        }
+
+        int size() {
+            return data.capacity();
+        }
+    }
+
+    // The keys looked up by the threads sharing the stripe, written without a lock and read under it.
+    private static final class ReadStripe {
+        private final AtomicReferenceArray<String> keys = new AtomicReferenceArray<>(read_stripe_size);
+        private final AtomicLong writes = new AtomicLong();
+        // only written under the lock
+        private volatile long reads;
+
+        // Whether the stripe is full, counting the key if it fitted.
+        boolean offer(String key) {
+            long write = writes.get();
+            if (write - reads >= read_stripe_size) return true;
+            if (writes.compareAndSet(write, write + 1)) {
+                keys.lazySet((int) (write & read_stripe_mask), key);
+                return write + 1 - reads >= read_stripe_size;
+            }
+            // a lookup on another thread of the stripe took the slot: this one is dropped
+            return false;
+        }
+
+        // Caller holds the lock.
+        void drainTo(MemoryResultCache cache) {
+            long read = reads;
+            long write = writes.get();
+            while (read < write) {
+                int index = (int) (read & read_stripe_mask);
+                String key = keys.get(index);
+                // taken but not written yet: left to the next drain
+                if (key == null) break;
+                keys.lazySet(index, null);
+                cache.onAccess(key);
+                read++;
+            }
+            reads = read;
+        }
+    }
+
+    // null when this is the only tier
+    private final ResultStore next;
+    private final long max_entry_bytes;
+    private final long window_max_bytes;
+    private final long protected_max_bytes;
+    private final long main_max_bytes;
+    private final CacheMetrics metrics = new CacheMetrics();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Every entry of the three segments, for lookups without the lock; changed only under it, with them.
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+    private final ReadStripe[] read_stripes;
+    // All access-ordered, least recently used first, and guarded by lock together with the byte counts
+    // and the sketch.
+    private final LinkedHashMap<String, Node> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Node> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Node> protected_segment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long window_bytes;
+    private long probation_bytes;
+    private long protected_bytes;
+
+    private MemoryResultCache(Builder builder) {
+        this.next = builder.next;
+        this.max_entry_bytes = Math.min(builder.max_entry_bytes, builder.max_bytes);
+        this.window_max_bytes = Math.max(builder.max_bytes / 100, max_entry_bytes);
+        this.main_max_bytes = Math.max(0, builder.max_bytes - window_max_bytes);
+        this.protected_max_bytes = main_max_bytes * 8 / 10;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, builder.max_bytes / 4096));
+        this.read_stripes = new ReadStripe[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4)];
+        for (int i = 0; i < read_stripes.length; i++) {
+            read_stripes[i] = new ReadStripe();
+        }
+    }
+
+    public static Builder builder(long max_bytes) {
+        return new Builder(max_bytes);
+    }
+
+    // Returns a read-only view of the result, loading it from the next tier on a miss, or null when
+    // neither tier has it. The view is independent: its position and limit can be changed freely.
+    public ByteBuffer getBuffer(String key) throws IOException {
+        ByteBuffer data = lookup(key);
+        if (data != null) {
+            metrics.recordHit();
+            return data.asReadOnlyBuffer();
+        }
+        metrics.recordMiss();
+        if (next == null) return null;
+        Path temp_path = Files.createTempFile("foxit-result-", ".tmp");
+        try {
+            if (!next.get(key, temp_path)) return null;
+            data = load(temp_path);
+        } finally {
+            Files.deleteIfExists(temp_path);
+        }
+        if (data == null) {
+            // too large for the memory tier, so served straight from the file
+            return null;
+        }
+        admit(key, data);
+        return data.asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean get(String key, Path output_path) throws IOException {
+        ByteBuffer data = lookup(key);
+        if (data != null) {
+            write(data.duplicate(), output_path);
+            metrics.recordHit();
+            return true;
+        }
+        metrics.recordMiss();
+        if (next == null || !next.get(key, output_path)) return false;
+        ByteBuffer loaded = load(output_path);
+        if (loaded != null) {
+            admit(key, loaded);
+        }
+        return true;
+    }
+
+    @Override
+    public void put(String key, Path result_path) throws IOException {
+        if (next != null) {
+            next.put(key, result_path);
+        }
+        ByteBuffer data = load(result_path);
+        if (data != null) {
+            admit(key, data);
+        }
+    }
+
+    @Override
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getSizeInBytes() {
+        lock.lock();
+        try {
+            return window_bytes + probation_bytes + protected_bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getEntryCount() {
+        return nodes.size();
+    }
+
+    private ByteBuffer lookup(String key) {
+        Node node = nodes.get(key);
+        int hash = (int) Thread.currentThread().getId() * 0x9e3779b9;
+        if (read_stripes[(hash >>> 16) & (read_stripes.length - 1)].offer(key) && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node == null ? null : node.data;
+    }
+
+    // Caller holds the lock.
+    private void drainReads() {
+        for (ReadStripe stripe : read_stripes) {
+            stripe.drainTo(this);
+        }
+    }
+
+    // Caller holds the lock. The lookup may have missed, or its entry been evicted since.
+    private void onAccess(String key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protected_segment.get(key) != null) return;
+        Node node = probation.remove(key);
+        if (node == null) return;
+        // a second hit: promote, and demote the least recently used protected entries in return
+        probation_bytes -= node.size();
+        protected_segment.put(key, node);
+        protected_bytes += node.size();
+        Iterator<Node> eldest = protected_segment.values().iterator();
+        while (protected_bytes > protected_max_bytes && eldest.hasNext()) {
+            Node demoted = eldest.next();
+            eldest.remove();
+            protected_bytes -= demoted.size();
+            probation.put(demoted.key, demoted);
+            probation_bytes += demoted.size();
+        }
+    }
+
+    private void admit(String key, ByteBuffer data) {
+        lock.lock();
+        try {
+            drainReads();
+            if (nodes.containsKey(key)) return;
+            Node node = new Node(key, data);
+            window.put(key, node);
+            nodes.put(key, node);
+            window_bytes += node.size();
+            metrics.recordStore();
+            Iterator<Node> eldest = window.values().iterator();
+            while (window_bytes > window_max_bytes && eldest.hasNext()) {
+                Node candidate = eldest.next();
+                eldest.remove();
+                window_bytes -= candidate.size();
+                admitToMain(candidate);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock. The victims are picked, probation first, and compared with the candidate before
+    // any of them is evicted: a candidate that loses to one of them leaves the main space as it was.
+    private void admitToMain(Node candidate) {
+        if (candidate.size() > main_max_bytes) {
+            nodes.remove(candidate.key, candidate);
+            metrics.recordEviction();
+            return;
+        }
+        int candidate_frequency = sketch.frequency(candidate.key);
+        long excess = probation_bytes + protected_bytes + candidate.size() - main_max_bytes;
+        List<Node> victims = new ArrayList<>();
+        Iterator<Node> probation_order = probation.values().iterator();
+        Iterator<Node> protected_order = protected_segment.values().iterator();
+        while (excess > 0) {
+            Node victim = probation_order.hasNext() ? probation_order.next() : protected_order.next();
+            if (sketch.frequency(victim.key) >= candidate_frequency) {
+                // the candidate is not more popular than what it would displace
+                nodes.remove(candidate.key, candidate);
+                metrics.recordEviction();
+                return;
+            }
+            victims.add(victim);
+            excess -= victim.size();
+        }
+        for (Node victim : victims) {
+            if (probation.remove(victim.key) != null) {
+                probation_bytes -= victim.size();
+            } else {
+                protected_segment.remove(victim.key);
+                protected_bytes -= victim.size();
+            }
+            nodes.remove(victim.key, victim);
+            metrics.recordEviction();
+        }
+        probation.put(candidate.key, candidate);
+        probation_bytes += candidate.size();
+    }
+
+    // Copies the file into direct memory, or returns null when it is too large for this tier.
+    private ByteBuffer load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > max_entry_bytes) return null;
+            ByteBuffer data = ByteBuffer.allocateDirect((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) == -1) break;
+            }
+            data.flip();
+            return data;
+        }
+    }
+
+    private static void write(ByteBuffer data, Path output_path) throws IOException {
+        Path part_path = output_path.resolveSibling(output_path.getFileName() + ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(part_path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(part_path, output_path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part_path);
+            throw e;
+        }
+    }
+
+    public static final class Builder {
+        private final long max_bytes;
+        private long max_entry_bytes = default_max_entry_bytes;
+        private ResultStore next;
+
+        private Builder(long max_bytes) {
+            this.max_bytes = max_bytes;
+        }
+
+        // Results larger than this bypass the memory tier and are only kept by the next one.
+        public Builder maxEntryBytes(long max_entry_bytes) {
+            this.max_entry_bytes = max_entry_bytes;
+            return this;
+        }
+
+        // The tier behind this one: misses are looked up there, and every put is also stored there.
+        public Builder next(ResultStore next) {
+            this.next = next;
+            return this;
+        }
+
+        public MemoryResultCache build() {
+            return new MemoryResultCache(this);
+        }
+    }
+}
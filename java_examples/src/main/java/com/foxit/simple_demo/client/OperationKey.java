@@ -0,0 +1,139 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the content-addressed key of an operation and its inputs.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+// SHA-256 over the server, the endpoint, the form fields and the bytes of every uploaded document.
+// Two operations with the same key produce the same result, whatever the input files are called:
+//   - fields are hashed in name order, and JSON values (the "config" of most operations) are
+//     re-serialized with their members sorted, so {"a":1,"b":2} and { "b": 2, "a": 1 } are one key
+//   - documents are hashed by content in part name order, their file names are left out
+// Every value is length-prefixed, so no two different inputs can run together into the same bytes.
+final class OperationKey {
+
+    private static final char[] hex_digits = "0123456789abcdef".toCharArray();
+
+    private OperationKey() {
+    }
+
+    // Returns null when a document can only be read once (an InputStream), which rules out caching.
+    static String of(String base_url, OperationRequest operation) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, base_url);
+        update(digest, operation.getEndpoint());
+
+        TreeMap<String, String> fields = new TreeMap<>(operation.getFields());
+        update(digest, Integer.toString(fields.size()));
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            update(digest, field.getKey());
+            update(digest, canonicalValue(field.getValue()));
+        }
+
+        List<OperationRequest.FilePart> files = new ArrayList<>(operation.getFiles());
+        files.sort(Comparator.comparing(OperationRequest.FilePart::getName));
+        update(digest, Integer.toString(files.size()));
+        for (OperationRequest.FilePart part : files) {
+            update(digest, part.getName());
+            MessageDigest content = newDigest();
+            if (!part.getSource().updateDigest(content)) return null;
+            digest.update(content.digest());
+        }
+        return toHex(digest.digest());
+    }
+
+    // The key of a download, which depends on nothing but the document and the name it is served under.
+    static String ofDownload(String base_url, String doc_id, String file_name) {
+        MessageDigest digest = newDigest();
+        update(digest, "download");
+        update(digest, base_url);
+        update(digest, doc_id);
+        update(digest, file_name);
+        return toHex(digest.digest());
+    }
+
+    static String canonicalValue(String value) {
+        if (value == null) return "";
+        String trimmed = value.trim();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) return value;
+        try {
+            return canonicalJson(new JsonParser().parse(trimmed));
+        } catch (JsonParseException e) {
+            return value;
+        }
+    }
+
+    private static String canonicalJson(JsonElement element) {
+        if (element.isJsonObject()) {
+            TreeMap<String, JsonElement> members = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> member : ((JsonObject) element).entrySet()) {
+                members.put(member.getKey(), member.getValue());
+            }
+            StringBuilder json = new StringBuilder("{");
+            for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+                if (json.length() > 1) json.append(',');
+                json.append(new JsonPrimitive(member.getKey())).append(':')
+                    .append(canonicalJson(member.getValue()));
+            }
+            return json.append('}').toString();
+        }
+        if (element.isJsonArray()) {
+            StringBuilder json = new StringBuilder("[");
+            for (JsonElement item : (JsonArray) element) {
+                if (json.length() > 1) json.append(',');
+                json.append(canonicalJson(item));
+            }
+            return json.append(']').toString();
+        }
+        return element.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = hex_digits[(bytes[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = hex_digits[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the description of one document operation sent to Foxit Cloud API.
+
+package com.foxit.simple_demo.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// An operation is an endpoint (e.g. "document/compress") plus the multipart form it is posted with.
+// Every form field is also part of the signed parameters, the uploaded documents are not.
+public final class OperationRequest {
+
+    public static final class FilePart {
+        private final String name;
+        private final UploadSource source;
+
+        FilePart(String name, UploadSource source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public UploadSource getSource() {
+            return source;
+        }
+    }
+
+    private final String endpoint;
+    private final List<FilePart> files;
+    private final Map<String, String> fields;
+
+    private OperationRequest(Builder builder) {
+        this.endpoint = builder.endpoint;
+        this.files = Collections.unmodifiableList(new ArrayList<>(builder.files));
+        this.fields = Collections.unmodifiableMap(new LinkedHashMap<>(builder.fields));
+    }
+
+    public static Builder builder(String endpoint) {
+        return new Builder(endpoint);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public List<FilePart> getFiles() {
+        return files;
+    }
+
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public static final class Builder {
+        private final String endpoint;
+        private final List<FilePart> files = new ArrayList<>();
+        private final Map<String, String> fields = new LinkedHashMap<>();
+
+        private Builder(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public Builder file(String name, String file_path) {
+            return file(name, UploadSource.of(file_path));
+        }
+
+        public Builder file(String name, UploadSource source) {
+            files.add(new FilePart(name, source));
+            return this;
+        }
+
+        public Builder field(String name, String value) {
+            fields.put(name, value);
+            return this;
+        }
+
+        public OperationRequest build() {
+            return new OperationRequest(this);
+        }
+    }
+}
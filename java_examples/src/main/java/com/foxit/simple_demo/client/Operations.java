@@ -0,0 +1,170 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the typed requests for every document operation of Foxit Cloud API.
+
+package com.foxit.simple_demo.client;
+
+public final class Operations {
+
+    private Operations() {
+    }
+
+    public static OperationRequest combine(String input_zip_document, String config) {
+        return combine(UploadSource.of(input_zip_document), config);
+    }
+
+    public static OperationRequest combine(UploadSource input_zip_document, String config) {
+        return OperationRequest.builder("document/combine")
+            .file("inputZipDocument", input_zip_document)
+            .field("config", config)
+            .build();
+    }
+
+    public static OperationRequest compare(String input_base_document, String input_compare_document, String result_type,
+                                           String compare_type) {
+        return compare(UploadSource.of(input_base_document), UploadSource.of(input_compare_document),
+                       result_type, compare_type);
+    }
+
+    public static OperationRequest compare(UploadSource input_base_document, UploadSource input_compare_document,
+                                           String result_type, String compare_type) {
+        return OperationRequest.builder("document/compare")
+            .file("inputBaseDocument", input_base_document)
+            .file("inputCompareDocument", input_compare_document)
+            .field("resultType", result_type)
+            .field("compareType", compare_type)
+            .build();
+    }
+
+    public static OperationRequest compress(String input_document, String compression_level) {
+        return compress(UploadSource.of(input_document), compression_level);
+    }
+
+    public static OperationRequest compress(UploadSource input_document, String compression_level) {
+        return OperationRequest.builder("document/compress")
+            .file("inputDocument", input_document)
+            .field("compressionLevel", compression_level)
+            .build();
+    }
+
+    public static OperationRequest convert(String input_document, String format, String config) {
+        return convert(UploadSource.of(input_document), format, config);
+    }
+
+    public static OperationRequest convert(UploadSource input_document, String format, String config) {
+        return OperationRequest.builder("document/convert")
+            .file("inputDocument", input_document)
+            .field("format", format)
+            .field("config", config)
+            .build();
+    }
+
+    // the format can be "url", "html", "shtml"
+    public static OperationRequest createFromHtml(String url, String format, String config) {
+        return OperationRequest.builder("document/createFromHtml")
+            .field("url", url)
+            .field("format", format)
+            .field("config", config)
+            .build();
+    }
+
+    public static OperationRequest create(String input_document, String format) {
+        return create(UploadSource.of(input_document), format);
+    }
+
+    public static OperationRequest create(UploadSource input_document, String format) {
+        return OperationRequest.builder("document/create")
+            .file("inputDocument", input_document)
+            .field("format", format)
+            .build();
+    }
+
+    // the mode can be "extractText", "extractImages"
+    public static OperationRequest extract(String input_document, String mode, String page_range) {
+        return extract(UploadSource.of(input_document), mode, page_range);
+    }
+
+    public static OperationRequest extract(UploadSource input_document, String mode, String page_range) {
+        return OperationRequest.builder("document/extract")
+            .file("inputDocument", input_document)
+            .field("mode", mode)
+            .field("pageRange", page_range)
+            .build();
+    }
+
+    public static OperationRequest flatten(String input_document, String page_range) {
+        return flatten(UploadSource.of(input_document), page_range);
+    }
+
+    public static OperationRequest flatten(UploadSource input_document, String page_range) {
+        return OperationRequest.builder("document/flatten")
+            .file("inputDocument", input_document)
+            .field("pageRange", page_range)
+            .build();
+    }
+
+    public static OperationRequest linearize(String input_document) {
+        return linearize(UploadSource.of(input_document));
+    }
+
+    public static OperationRequest linearize(UploadSource input_document) {
+        return OperationRequest.builder("document/linearize")
+            .file("inputDocument", input_document)
+            .build();
+    }
+
+    public static OperationRequest manipulation(String input_document, String config) {
+        return manipulation(UploadSource.of(input_document), config);
+    }
+
+    public static OperationRequest manipulation(UploadSource input_document, String config) {
+        return OperationRequest.builder("document/manipulation")
+            .file("inputDocument", input_document)
+            .field("config", config)
+            .build();
+    }
+
+    public static OperationRequest protect(String input_document, String password_protection, String permission,
+                                           String encryption_algorithm) {
+        return protect(UploadSource.of(input_document), password_protection, permission, encryption_algorithm);
+    }
+
+    public static OperationRequest protect(UploadSource input_document, String password_protection,
+                                           String permission, String encryption_algorithm) {
+        return OperationRequest.builder("document/protect")
+            .file("inputDocument", input_document)
+            .field("passwordProtection", password_protection)
+            .field("permission", permission)
+            .field("encryptionAlgorithm", encryption_algorithm)
+            .build();
+    }
+
+    public static OperationRequest removePassword(String input_document, String password) {
+        return removePassword(UploadSource.of(input_document), password);
+    }
+
+    public static OperationRequest removePassword(UploadSource input_document, String password) {
+        return OperationRequest.builder("document/removePassword")
+            .file("inputDocument", input_document)
+            .field("password", password)
+            .build();
+    }
+
+    public static OperationRequest split(String input_document, String config) {
+        return split(UploadSource.of(input_document), config);
+    }
+
+    public static OperationRequest split(UploadSource input_document, String config) {
+        return OperationRequest.builder("document/split")
+            .file("inputDocument", input_document)
+            .field("config", config)
+            .build();
+    }
+}
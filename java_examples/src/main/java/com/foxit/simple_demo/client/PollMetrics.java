@@ -0,0 +1,71 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the counters describing how efficiently tasks are polled.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A status request is wasted when it does not find the task completed: with perfect timing every
+// task would need exactly one. Counters are striped, so recording from many threads is cheap.
+public final class PollMetrics {
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder completed_tasks = new LongAdder();
+    private final LongAdder polled_miliseconds = new LongAdder();
+    private final LongAdder abandoned_tasks = new LongAdder();
+
+    void recordPoll() {
+        polls.increment();
+    }
+
+    void recordCompleted() {
+        completed_tasks.increment();
+    }
+
+    void recordDelay(long delay_in_miliseconds) {
+        polled_miliseconds.add(delay_in_miliseconds);
+    }
+
+    void recordAbandoned() {
+        abandoned_tasks.increment();
+    }
+
+    public long getPolls() {
+        return polls.sum();
+    }
+
+    public long getCompletedTasks() {
+        return completed_tasks.sum();
+    }
+
+    public long getWastedPolls() {
+        return Math.max(0, polls.sum() - completed_tasks.sum());
+    }
+
+    // Tasks no longer polled because every caller stopped waiting, e.g. when their job deadline passed.
+    public long getAbandonedTasks() {
+        return abandoned_tasks.sum();
+    }
+
+    // Total time tasks spent waiting between status requests.
+    public long getWaitedMiliseconds() {
+        return polled_miliseconds.sum();
+    }
+
+    @Override
+    public String toString() {
+        long polls = getPolls();
+        long completed_tasks = getCompletedTasks();
+        return String.format("polls=%d completed=%d wasted=%d polls/task=%.2f abandoned=%d", polls, completed_tasks,
+                             getWastedPolls(), completed_tasks == 0 ? 0.0 : polls / (double) completed_tasks,
+                             getAbandonedTasks());
+    }
+}
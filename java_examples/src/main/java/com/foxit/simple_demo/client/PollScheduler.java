@@ -0,0 +1,305 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the scheduler that multiplexes the status requests of all pending tasks.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Owns every task being polled asynchronously by one engine. Each task is driven by the shared TimerWheel
+// according to its PollStrategy.Schedule; when its poll is due it joins a ready queue, and at most
+// max_concurrent_polls status requests are in flight at any time. Callers waiting on the same taskId
+// share one poll loop, and each caller gets its own future completed with the docId, or failed once the
+// caller's job deadline passes or the job is cancelled. A task whose callers all stopped waiting is no
+// longer polled, and its status request in flight is cancelled. A cancel fails the futures of its callers
+// first and leaves their tasks afterwards, in one sweep on the timer thread for all of them; meanwhile a
+// task whose callers' jobs are all stopped is not polled. A status request refused by an open
+// CircuitBreaker leaves the task pending, polled again once the endpoint lets calls through. A completed
+// task is counted in the ClientMetrics of the endpoint of its first caller.
+final class PollScheduler {
+
+    private final class PolledTask {
+        final String task_id;
+        final String endpoint;
+        final PollStrategy.Schedule schedule;
+        final long started_nanos = System.nanoTime();
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        // all guarded by this
+        final List<Job> waiters = new ArrayList<>();
+        boolean abandoned;
+        // not polled because every waiter's job stopped; a new waiter polls it again
+        boolean idle;
+        volatile CompletableFuture<TaskInfo> status;
+        // only touched by the completion of its one status request in flight
+        int polls;
+
+        PolledTask(String task_id, String endpoint, PollStrategy.Schedule schedule) {
+            this.task_id = task_id;
+            this.endpoint = endpoint;
+            this.schedule = schedule;
+        }
+    }
+
+    private final Function<String, CompletableFuture<TaskInfo>> status_request;
+    private final PollStrategy strategy;
+    private final TaskListener listener;
+    private final PollMetrics metrics;
+    private final ClientMetrics endpoint_metrics;
+    private final Semaphore permits;
+    private final Map<String, PolledTask> tasks = new ConcurrentHashMap<>();
+    private final Queue<PolledTask> ready = new ConcurrentLinkedQueue<>();
+    // a drain is scheduled after status requests were cancelled
+    private final AtomicBoolean drain_deferred = new AtomicBoolean();
+    // tasks whose waiters stopped waiting, left by the next sweep
+    private final Queue<Runnable> leaving = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean sweep_scheduled = new AtomicBoolean();
+
+    PollScheduler(Function<String, CompletableFuture<TaskInfo>> status_request, PollStrategy strategy,
+                  TaskListener listener, PollMetrics metrics, ClientMetrics endpoint_metrics,
+                  int max_concurrent_polls) {
+        if (max_concurrent_polls <= 0) throw new IllegalArgumentException("max_concurrent_polls must be positive");
+        this.status_request = status_request;
+        this.strategy = strategy;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.endpoint_metrics = endpoint_metrics;
+        this.permits = new Semaphore(max_concurrent_polls);
+    }
+
+    CompletableFuture<String> await(String task_id, String endpoint, Job job) {
+        IOException stopped = job.stopped("Task " + task_id);
+        if (stopped != null) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(stopped);
+            return failed;
+        }
+        PolledTask task = join(task_id, endpoint, job);
+        CompletableFuture<String> waiter = new CompletableFuture<>();
+        task.result.whenComplete((doc_id, error) -> {
+            if (error != null) {
+                waiter.completeExceptionally(error);
+            } else {
+                waiter.complete(doc_id);
+            }
+        });
+        // on a cancel the waiter fails first, and the task is left by the next sweep
+        long remaining = job.remainingMiliseconds();
+        TimerWheel.Timeout timer = remaining == Long.MAX_VALUE ? null : TimerWheel.shared().schedule(
+            () -> waiter.completeExceptionally(job.exceeded("Task " + task_id)), remaining, TimeUnit.MILLISECONDS);
+        CancellationToken.Registration cancellation =
+            job.onCancel(() -> job.failCancelled(waiter, "Task " + task_id));
+        waiter.whenComplete((doc_id, error) -> {
+            if (timer != null) timer.cancel();
+            cancellation.remove();
+            if (task.result.isDone()) return;
+            if (TaskEngine.unwrap(error) instanceof CancelledException) {
+                deferLeave(task, job);
+            } else {
+                leave(task, job);
+            }
+        });
+        return waiter;
+    }
+
+    private PolledTask join(String task_id, String endpoint, Job job) {
+        while (true) {
+            PolledTask task = tasks.get(task_id);
+            boolean created = false;
+            if (task == null) {
+                PolledTask fresh = new PolledTask(task_id, endpoint, strategy.newSchedule());
+                task = tasks.putIfAbsent(task_id, fresh);
+                if (task == null) {
+                    task = fresh;
+                    created = true;
+                }
+            }
+            boolean resumed;
+            synchronized (task) {
+                // its last waiter left in the meantime
+                if (task.abandoned) continue;
+                task.waiters.add(job);
+                resumed = task.idle;
+                task.idle = false;
+            }
+            if (created) {
+                schedule(task, task.schedule.firstDelay());
+            } else if (resumed) {
+                schedule(task, 0);
+            }
+            return task;
+        }
+    }
+
+    private void deferLeave(PolledTask task, Job job) {
+        leaving.add(() -> leave(task, job));
+        if (sweep_scheduled.compareAndSet(false, true)) {
+            TimerWheel.shared().schedule(this::sweep, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sweep() {
+        sweep_scheduled.set(false);
+        Runnable leave;
+        while ((leave = leaving.poll()) != null) {
+            leave.run();
+        }
+    }
+
+    private void leave(PolledTask task, Job job) {
+        synchronized (task) {
+            task.waiters.remove(job);
+            if (!task.waiters.isEmpty()) return;
+            task.abandoned = true;
+        }
+        tasks.remove(task.task_id, task);
+        metrics.recordAbandoned();
+        CompletableFuture<TaskInfo> status = task.status;
+        if (status != null) status.cancel(true);
+    }
+
+    int pendingTasks() {
+        return tasks.size();
+    }
+
+    private void schedule(PolledTask task, long delay_in_miliseconds) {
+        metrics.recordDelay(delay_in_miliseconds);
+        if (delay_in_miliseconds <= 0) {
+            // due now, no need to wait up to a tick of the wheel
+            ready.add(task);
+            drain();
+            return;
+        }
+        TimerWheel.shared().schedule(() -> {
+            ready.add(task);
+            drain();
+        }, delay_in_miliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        while (!ready.isEmpty() && permits.tryAcquire()) {
+            PolledTask task = ready.poll();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+            poll(task);
+        }
+    }
+
+    private void poll(PolledTask task) {
+        if (isAbandoned(task) || isIdle(task)) {
+            permits.release();
+            return;
+        }
+        CompletableFuture<TaskInfo> status;
+        try {
+            status = status_request.apply(task.task_id);
+        } catch (RuntimeException e) {
+            permits.release();
+            finish(task, null, e);
+            return;
+        }
+        task.status = status;
+        // left while the request was being sent
+        if (isAbandoned(task)) status.cancel(true);
+        status.whenComplete((task_info, error) -> {
+            task.status = null;
+            permits.release();
+            if (status.isCancelled()) {
+                deferDrain();
+                return;
+            }
+            try {
+                onStatus(task, task_info, error);
+            } finally {
+                drain();
+            }
+        });
+    }
+
+    // Left by a cancel that may be sweeping many tasks: the next ones are polled a tick later rather than
+    // start status requests for tasks it is about to leave, by one drain for the whole sweep.
+    private void deferDrain() {
+        if (!drain_deferred.compareAndSet(false, true)) return;
+        TimerWheel.shared().schedule(() -> {
+            drain_deferred.set(false);
+            drain();
+        }, 1, TimeUnit.MILLISECONDS);
+    }
+
+    private void onStatus(PolledTask task, TaskInfo task_info, Throwable error) {
+        if (isAbandoned(task)) return;
+        if (error != null && TaskEngine.unwrap(error) instanceof CircuitOpenException) {
+            // nothing was sent, and the task goes on on the server: asked again once the endpoint may answer
+            schedule(task, TaskEngine.circuitDelay(task.schedule, (CircuitOpenException) TaskEngine.unwrap(error)));
+            return;
+        }
+        metrics.recordPoll();
+        task.polls++;
+        int percentage;
+        if (error != null) {
+            Throwable cause = TaskEngine.unwrap(error);
+            if (!(cause instanceof RestException && TaskEngine.isTaskRunning((RestException) cause))) {
+                finish(task, null, cause);
+                return;
+            }
+            percentage = -1;
+        } else if (task_info.isCompleted()) {
+            metrics.recordCompleted();
+            endpoint_metrics.endpoint(task.endpoint)
+                .recordTask(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.started_nanos), task.polls);
+            listener.onCompleted(task.task_id, task_info.getDocId());
+            finish(task, task_info.getDocId(), null);
+            return;
+        } else {
+            percentage = task_info.getPercentage();
+        }
+        long delay = task.schedule.nextDelay(percentage);
+        if (percentage < 0) listener.onRunning(task.task_id, delay);
+        schedule(task, delay);
+    }
+
+    // Every waiter's job stopped: they are about to leave, and a new waiter polls the task again.
+    private static boolean isIdle(PolledTask task) {
+        synchronized (task) {
+            for (Job waiter : task.waiters) {
+                if (!waiter.isStopped()) return false;
+            }
+            task.idle = true;
+            return true;
+        }
+    }
+
+    private static boolean isAbandoned(PolledTask task) {
+        synchronized (task) {
+            return task.abandoned;
+        }
+    }
+
+    private void finish(PolledTask task, String doc_id, Throwable error) {
+        tasks.remove(task.task_id, task);
+        if (error != null) {
+            task.result.completeExceptionally(error);
+        } else {
+            task.result.complete(doc_id);
+        }
+    }
+}
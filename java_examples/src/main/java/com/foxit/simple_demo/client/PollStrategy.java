@@ -0,0 +1,47 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the strategy deciding when a Foxit Cloud API task is polled next.
+
+package com.foxit.simple_demo.client;
+
+// A strategy hands out one schedule per task. The schedule is only used by the thread (or timer)
+// polling that task, so implementations may keep mutable state without synchronization.
+public interface PollStrategy {
+
+    interface Schedule {
+        // Delay between task submission and the first status request.
+        long firstDelay();
+
+        // Delay before the next status request. percentage is the progress reported by the last
+        // request, or -1 when the server only answered that the task is running.
+        long nextDelay(int percentage);
+    }
+
+    Schedule newSchedule();
+
+    // Polls every interval_in_miliseconds, starting right after submission, like the original examples.
+    static PollStrategy fixed(long interval_in_miliseconds) {
+        return () -> new Schedule() {
+            @Override
+            public long firstDelay() {
+                return 0;
+            }
+
+            @Override
+            public long nextDelay(int percentage) {
+                return interval_in_miliseconds;
+            }
+        };
+    }
+
+    static PollStrategy adaptive() {
+        return new AdaptivePollStrategy();
+    }
+}
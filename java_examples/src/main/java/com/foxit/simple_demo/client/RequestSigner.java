@@ -0,0 +1,179 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the signature calculation shared by every Foxit Cloud API request.
+
+package com.foxit.simple_demo.client;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+
+// The signature of parameters is calculated in the actual interface call in combination with the secret Id:
+// the parameters are sorted by name, url encoded, joined with '&', suffixed with "&sk=<secret id>" and md5 hashed.
+//
+// Signing runs for every request, so it avoids the allocations of the straightforward version: the query
+// is written as ASCII into a per-thread buffer and hashed with a per-thread digest, values that need no
+// escaping are copied as-is, the client id and the secret suffix are encoded up front, and the hex string
+// is built from a lookup table. The values of a request are encoded on every call rather than kept, as
+// they include passwords.
+final class RequestSigner {
+
+    private static final char[] hex_digits = "0123456789abcdef".toCharArray();
+
+    private static final class State {
+        final MessageDigest md5;
+        final byte[] digest = new byte[16];
+        final char[] hex = new char[32];
+        byte[] buffer = new byte[512];
+        int length;
+
+        State() {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private final String client_id;
+    private final byte[] client_id_param;
+    private final byte[] secret_suffix;
+
+    RequestSigner(Credentials credentials) {
+        this.client_id = credentials.getClientId();
+        this.client_id_param = ascii("clientId=" + encode(client_id));
+        this.secret_suffix = ("&sk=" + credentials.getSecretId()).getBytes();
+    }
+
+    String sign(SortedMap<String, String> query_params) {
+        State s = begin();
+        boolean first = true;
+        for (Map.Entry<String, String> entry : query_params.entrySet()) {
+            if (!first) append(s, '&');
+            first = false;
+            if (entry.getKey().equals("clientId") && entry.getValue().equals(client_id)) {
+                append(s, client_id_param);
+                continue;
+            }
+            append(s, entry.getKey());
+            append(s, '=');
+            appendEncoded(s, entry.getValue());
+        }
+        return finish(s);
+    }
+
+    // clientId=..&taskId=..
+    String signTaskInfo(String task_id) {
+        State s = begin();
+        append(s, client_id_param);
+        append(s, "&taskId=");
+        appendEncoded(s, task_id);
+        return finish(s);
+    }
+
+    // clientId=..&docId=..&fileName=..
+    String signDownload(String doc_id, String file_name) {
+        State s = begin();
+        append(s, client_id_param);
+        append(s, "&docId=");
+        appendEncoded(s, doc_id);
+        append(s, "&fileName=");
+        appendEncoded(s, file_name);
+        return finish(s);
+    }
+
+    private static State begin() {
+        State s = state.get();
+        s.length = 0;
+        return s;
+    }
+
+    private String finish(State s) {
+        append(s, secret_suffix);
+        s.md5.update(s.buffer, 0, s.length);
+        try {
+            s.md5.digest(s.digest, 0, s.digest.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < s.digest.length; i++) {
+            s.hex[2 * i] = hex_digits[(s.digest[i] >> 4) & 0xf];
+            s.hex[2 * i + 1] = hex_digits[s.digest[i] & 0xf];
+        }
+        return new String(s.hex);
+    }
+
+    private static void appendEncoded(State s, String value) {
+        append(s, isUnreserved(value) ? value : encode(value));
+    }
+
+    // Characters URLEncoder leaves unchanged.
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                  || c == '.' || c == '-' || c == '*' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void ensureCapacity(State s, int extra) {
+        if (s.length + extra > s.buffer.length) {
+            byte[] grown = new byte[Math.max(s.buffer.length * 2, s.length + extra)];
+            System.arraycopy(s.buffer, 0, grown, 0, s.length);
+            s.buffer = grown;
+        }
+    }
+
+    private static void append(State s, char c) {
+        ensureCapacity(s, 1);
+        s.buffer[s.length++] = (byte) c;
+    }
+
+    // Only used for names and url encoded values, which are plain ASCII.
+    private static void append(State s, String ascii) {
+        int length = ascii.length();
+        ensureCapacity(s, length);
+        for (int i = 0; i < length; i++) {
+            s.buffer[s.length++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private static void append(State s, byte[] bytes) {
+        ensureCapacity(s, bytes.length);
+        System.arraycopy(bytes, 0, s.buffer, s.length, bytes.length);
+        s.length += bytes.length;
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the exception raised when the Foxit Cloud API rejects a request.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+
+public class RestException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int http_code;
+    // The response body is captured before the response is closed, so it can still be inspected by callers.
+    private final String body;
+
+    // data.detail of the body, the server's explanation of the error
+    private final String detail;
+
+    public RestException(int http_code, String body, String message) {
+        this(http_code, body, TaskResponse.read(body).getDetail(), message);
+    }
+
+    // For callers that already decoded the body while reading it.
+    RestException(int http_code, String body, String detail, String message) {
+        super(message);
+        this.http_code = http_code;
+        this.body = body;
+        this.detail = detail;
+    }
+
+    public int getHttpCode() {
+        return http_code;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
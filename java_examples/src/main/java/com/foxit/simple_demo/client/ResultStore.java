@@ -0,0 +1,28 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the interface of a store for finished operation results.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Results are keyed by OperationKey, a hash of the operation and its input bytes, so a stored result
+// is valid forever: there is no invalidation, only eviction. Implementations must be thread-safe.
+public interface ResultStore {
+
+    // Writes the stored result to output_path and returns true, or returns false on a miss.
+    boolean get(String key, Path output_path) throws IOException;
+
+    // Stores a copy of the result; the file at result_path stays with the caller.
+    void put(String key, Path result_path) throws IOException;
+
+    CacheMetrics getMetrics();
+}
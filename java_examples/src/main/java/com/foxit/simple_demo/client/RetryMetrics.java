@@ -0,0 +1,52 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the counters of retried and hedged calls.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A hedge is a second download of the same docId started when the first is slower to answer than
+// usual; it wins when it answers first. Counters are striped, so recording from many threads is cheap.
+public final class RetryMetrics {
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedge_wins = new LongAdder();
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordHedge() {
+        hedges.increment();
+    }
+
+    void recordHedgeWin() {
+        hedge_wins.increment();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWins() {
+        return hedge_wins.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("retries=%d hedges=%d hedge-wins=%d", getRetries(), getHedges(), getHedgeWins());
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the retry policy for transient failures.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// How often and how long to wait before a failed call is tried again. Backoff is exponential with full
+// jitter: the wait before attempt n is drawn uniformly from [0, min(max_backoff, initial_backoff * 2^(n-2))],
+// so clients that failed together do not come back together.
+//
+// Status and download calls are idempotent and retried on any transient failure. Creating a task is not:
+// a submission whose upload reached the server may have created a task even if the answer was lost, so it
+// is only retried when the request surely never got there or was turned away before any work was done.
+public final class RetryPolicy {
+
+    public static final int default_max_attempts = 4;
+    public static final long default_initial_backoff_in_miliseconds = 200;
+    public static final long default_max_backoff_in_miliseconds = 10000;
+
+    // Every call is tried once.
+    public static final RetryPolicy none = builder().maxAttempts(1).build();
+
+    private final int max_attempts;
+    private final long initial_backoff_in_miliseconds;
+    private final long max_backoff_in_miliseconds;
+
+    private RetryPolicy(Builder builder) {
+        this.max_attempts = builder.max_attempts;
+        this.initial_backoff_in_miliseconds = builder.initial_backoff_in_miliseconds;
+        this.max_backoff_in_miliseconds = builder.max_backoff_in_miliseconds;
+    }
+
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return max_attempts;
+    }
+
+    // The wait before the given attempt, counting the first as 1.
+    public long backoff(int attempt) {
+        long cap = initial_backoff_in_miliseconds << Math.min(Math.max(0, attempt - 2), 30);
+        cap = Math.min(max_backoff_in_miliseconds, cap < 0 ? max_backoff_in_miliseconds : cap);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    // Connection failures, timeouts, throttling and server errors; not the API rejecting the request itself,
+    // a call that was cancelled or interrupted, nor one refused by a CircuitBreaker.
+    public static boolean isTransient(Throwable error) {
+        if (error instanceof RestException) {
+            int http_code = ((RestException) error).getHttpCode();
+            return http_code == 408 || http_code == 429 || http_code >= 500;
+        }
+        if (error instanceof SocketTimeoutException) return true;
+        // an open circuit is meant to fail fast
+        if (error instanceof InterruptedIOException || error instanceof CircuitOpenException) return false;
+        return error instanceof IOException && !"Canceled".equals(error.getMessage());
+    }
+
+    // The submission never reached the server, or the server refused it before doing anything with it.
+    public static boolean isSafeToResubmit(Throwable error) {
+        if (error instanceof RestException) {
+            int http_code = ((RestException) error).getHttpCode();
+            return http_code == 429 || http_code == 503;
+        }
+        return error instanceof ConnectException || error instanceof UnknownHostException
+               || error instanceof NoRouteToHostException;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("max-attempts=%d backoff=%d-%d ms", max_attempts, initial_backoff_in_miliseconds,
+                             max_backoff_in_miliseconds);
+    }
+
+    public static final class Builder {
+        private int max_attempts = default_max_attempts;
+        private long initial_backoff_in_miliseconds = default_initial_backoff_in_miliseconds;
+        private long max_backoff_in_miliseconds = default_max_backoff_in_miliseconds;
+
+        private Builder() {
+        }
+
+        // Attempts in all, including the first.
+        public Builder maxAttempts(int max_attempts) {
+            if (max_attempts <= 0) throw new IllegalArgumentException("max_attempts must be positive");
+            this.max_attempts = max_attempts;
+            return this;
+        }
+
+        public Builder initialBackoff(long initial_backoff_in_miliseconds) {
+            if (initial_backoff_in_miliseconds < 0) throw new IllegalArgumentException("backoff must not be negative");
+            this.initial_backoff_in_miliseconds = initial_backoff_in_miliseconds;
+            return this;
+        }
+
+        public Builder maxBackoff(long max_backoff_in_miliseconds) {
+            if (max_backoff_in_miliseconds < 0) throw new IllegalArgumentException("backoff must not be negative");
+            this.max_backoff_in_miliseconds = max_backoff_in_miliseconds;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
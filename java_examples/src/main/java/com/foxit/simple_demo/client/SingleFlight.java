@@ -0,0 +1,136 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the coalescing of identical concurrent calls into one.
+
+package com.foxit.simple_demo.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// At most one call per key is in flight: the first caller of a key starts it, every caller arriving
+// while it runs joins it instead of starting its own. The key is forgotten as soon as the call completes,
+// so later callers start afresh (and find the result in a ResultStore, if there is one).
+//
+// The call runs under a Job of its own, without a deadline, that no caller owns: each caller waits for it
+// no longer than its own job allows, and leaving, on a cancel or at its deadline, fails only that caller.
+// The call is stopped once every caller's job is, and cancelled once its last caller left.
+final class SingleFlight<K, V> {
+
+    private final class Flight {
+        final Job job = Job.shared(this::isDeserted);
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // both guarded by this
+        final List<Job> waiters = new ArrayList<>();
+        // left by its last waiter, or completed: no longer joined
+        boolean closed;
+
+        synchronized boolean isDeserted() {
+            for (Job waiter : waiters) {
+                if (!waiter.isStopped()) return false;
+            }
+            return true;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Flight> in_flight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    // The returned future is the caller's own: it fails once the caller's job stops, and cancelling it
+    // leaves the call, like cancelling the job.
+    CompletableFuture<V> execute(K key, String what, Job job, Function<Job, CompletableFuture<V>> call) {
+        while (true) {
+            Flight flight = in_flight.get(key);
+            boolean created = false;
+            if (flight == null) {
+                Flight fresh = new Flight();
+                flight = in_flight.putIfAbsent(key, fresh);
+                if (flight == null) {
+                    flight = fresh;
+                    created = true;
+                }
+            }
+            synchronized (flight) {
+                // a flight whose callers all stopped is about to be cancelled
+                if (flight.closed || (!created && flight.isDeserted())) {
+                    in_flight.remove(key, flight);
+                    continue;
+                }
+                flight.waiters.add(job);
+            }
+            CompletableFuture<V> waiter = waitFor(key, flight, what, job);
+            if (created) {
+                start(key, flight, call);
+            } else {
+                coalesced.increment();
+            }
+            return waiter;
+        }
+    }
+
+    private void start(K key, Flight flight, Function<Job, CompletableFuture<V>> call) {
+        CompletableFuture<V> result;
+        try {
+            result = call.apply(flight.job);
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, error) -> {
+            synchronized (flight) {
+                flight.closed = true;
+            }
+            in_flight.remove(key, flight);
+            flight.job.finish();
+            if (error != null) {
+                flight.result.completeExceptionally(TaskEngine.unwrap(error));
+            } else {
+                flight.result.complete(value);
+            }
+        });
+    }
+
+    private CompletableFuture<V> waitFor(K key, Flight flight, String what, Job job) {
+        CompletableFuture<V> waiter = job.bound(what, new CompletableFuture<>());
+        flight.result.whenComplete((value, error) -> {
+            if (error != null) {
+                waiter.completeExceptionally(error);
+            } else {
+                waiter.complete(value);
+            }
+        });
+        waiter.whenComplete((value, error) -> {
+            if (!flight.result.isDone()) leave(key, flight, job);
+        });
+        return waiter;
+    }
+
+    private void leave(K key, Flight flight, Job job) {
+        synchronized (flight) {
+            flight.waiters.remove(job);
+            if (flight.closed || !flight.waiters.isEmpty()) return;
+            flight.closed = true;
+        }
+        in_flight.remove(key, flight);
+        flight.job.cancel();
+    }
+
+    // Calls that joined one already in flight instead of running themselves.
+    long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    int inFlight() {
+        return in_flight.size();
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the per-stage concurrency limits of a batch run.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Bounds the uploads, the tasks being polled and the downloads of a run separately, so that e.g. slow
+// uploads cannot starve downloads of results that are already done. A missing limiter means no limit.
+final class StageLimits {
+
+    static final StageLimits unlimited = new StageLimits(null, null, null);
+
+    private final AsyncLimiter upload;
+    private final AsyncLimiter poll;
+    private final AsyncLimiter download;
+
+    StageLimits(AsyncLimiter upload, AsyncLimiter poll, AsyncLimiter download) {
+        this.upload = upload;
+        this.poll = poll;
+        this.download = download;
+    }
+
+    <T> CompletableFuture<T> upload(Supplier<CompletableFuture<T>> call) {
+        return upload == null ? call.get() : upload.run(call);
+    }
+
+    <T> CompletableFuture<T> poll(Supplier<CompletableFuture<T>> call) {
+        return poll == null ? call.get() : poll.run(call);
+    }
+
+    <T> CompletableFuture<T> download(Supplier<CompletableFuture<T>> call) {
+        return download == null ? call.get() : download.run(call);
+    }
+
+    AsyncLimiter getUpload() {
+        return upload;
+    }
+
+    AsyncLimiter getPoll() {
+        return poll;
+    }
+
+    AsyncLimiter getDownload() {
+        return download;
+    }
+}
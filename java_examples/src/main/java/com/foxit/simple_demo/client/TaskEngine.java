@@ -0,0 +1,1190 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the submit, poll and download engine shared by every Foxit Cloud API operation.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+// Every document operation follows the same workflow: upload the input and create a task,
+// poll the task interface until it reports 100 percent, then download the result by its docId.
+// The engine holds no per-call state, so one instance can be shared by any number of threads.
+//
+// Each step is available blocking (execute) and non-blocking (enqueue). The non-blocking variants
+// never hold a thread between polls: pending tasks are multiplexed by the engine's PollScheduler.
+//
+// Every call has a deadline set by the TimeoutPolicy for its kind and size, and every run of the whole
+// workflow a job deadline that bounds its calls, retries and polling. A run can be stopped at any point
+// with a CancellationToken, or by cancelling its future: the call in flight is cancelled, its task is no
+// longer polled and its place in any queue is given up.
+//
+// With a TaskJournal configured, submissions are idempotent per OperationKey, i.e. per input bytes, endpoint
+// and config: the task created for a key is kept in the journal until its result is downloaded, so running
+// the same operation on the same input again, e.g. after a timeout, picks that task up instead of uploading
+// again. A persistent journal extends this across restarts. The key is a hash of the whole input, so it is
+// only computed when a journal, a ResultStore or coalescing needs it.
+public final class TaskEngine {
+
+    private static final MediaType upload_media_type = MediaType.parse("text/plain");
+    // carries the OperationKey, for servers and gateways that deduplicate requests by it
+    static final String idempotency_key_header = "Idempotency-Key";
+    // downloads seen before their latency is known well enough to hedge
+    private static final int min_hedge_samples = 20;
+
+    private final OkHttpClient client;
+    private final HttpUrl base_url;
+    private final String client_id;
+    private final RequestSigner signer;
+    private final TaskListener listener;
+    private final PollStrategy poll_strategy;
+    private final PollMetrics poll_metrics = new PollMetrics();
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final PollScheduler poll_scheduler;
+    // null when results are not cached
+    private final ResultStore result_store;
+    // null when identical concurrent runs are not coalesced
+    private final SingleFlight<String, Path> single_flight;
+    // null when downloads are not cached
+    private final ResultStore download_store;
+    private final SingleFlight<String, Path> download_flight = new SingleFlight<>();
+    // in memory unless a persistent journal was configured
+    private final TaskJournal journal;
+    // whether a journal was configured; the default one only keeps tasks for resumeAsync
+    private final boolean journal_configured;
+    // by task id, the result of the run of this engine waiting on the task; a later run or resume of the
+    // same task joins it
+    private final Map<String, CompletableFuture<Path>> attached_tasks = new ConcurrentHashMap<>();
+    private final Throttle throttle;
+    private final CircuitBreaker circuit_breaker;
+    private final RetryPolicy retry_policy;
+    private final RetryMetrics retry_metrics = new RetryMetrics();
+    private final boolean hedge_downloads;
+    // time to the response headers of downloads, in miliseconds, for the hedging delay
+    private final LatencyHistogram download_latency = new LatencyHistogram();
+    private final TimeoutPolicy timeouts;
+
+    TaskEngine(OkHttpClient client, String base_url, Credentials credentials, TaskListener listener,
+               PollStrategy poll_strategy, int max_concurrent_polls, ResultStore result_store,
+               boolean coalesce_runs, ResultStore download_store, TaskJournal journal, Throttle throttle,
+               RetryPolicy retry_policy, boolean hedge_downloads, CircuitBreaker circuit_breaker,
+               TimeoutPolicy timeout_policy) {
+        this.client = client;
+        this.base_url = HttpUrl.parse(base_url);
+        if (this.base_url == null) throw new IllegalArgumentException("Invalid base url: " + base_url);
+        this.client_id = credentials.getClientId();
+        this.signer = new RequestSigner(credentials);
+        this.listener = listener;
+        this.poll_strategy = poll_strategy;
+        this.poll_scheduler = new PollScheduler(this::getTaskInfoAsync, poll_strategy, listener, poll_metrics,
+                                                metrics, max_concurrent_polls);
+        this.result_store = result_store;
+        this.single_flight = coalesce_runs ? new SingleFlight<>() : null;
+        this.download_store = download_store;
+        this.journal = journal == null ? TaskJournal.inMemory(TaskJournal.default_max_tasks) : journal;
+        this.journal_configured = journal != null;
+        this.throttle = throttle == null ? Throttle.none : throttle;
+        this.retry_policy = retry_policy == null ? RetryPolicy.none : retry_policy;
+        this.hedge_downloads = hedge_downloads;
+        this.circuit_breaker = circuit_breaker == null ? CircuitBreaker.none : circuit_breaker;
+        this.timeouts = timeout_policy == null ? TimeoutPolicy.none : timeout_policy;
+    }
+
+    public PollMetrics getPollMetrics() {
+        return poll_metrics;
+    }
+
+    public RetryMetrics getRetryMetrics() {
+        return retry_metrics;
+    }
+
+    // By endpoint: requests, bytes, latencies and, per operation, the processing time and polls of its tasks.
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    public TimeoutPolicy getTimeoutPolicy() {
+        return timeouts;
+    }
+
+    HttpUrl.Builder buildURI(String endpoint) {
+        return base_url.newBuilder().addPathSegments(endpoint);
+    }
+
+    // Runs the whole workflow for one document and returns the path of the downloaded result.
+    // With a ResultStore, a result already produced for the same operation and input bytes is copied
+    // from the store instead, without any request to the server. With coalescing, concurrent runs of
+    // the same operation and input bytes share one upload, task and download; each caller then gets
+    // its own copy of the result at its own output path. With a TaskJournal, a task that a previous
+    // process submitted for the same operation and input bytes is picked up instead of submitted again.
+    public Path run(OperationRequest operation, String output_file_path) throws IOException, InterruptedException {
+        return run(operation, output_file_path, CancellationToken.none);
+    }
+
+    public Path run(OperationRequest operation, String output_file_path, CancellationToken token)
+            throws IOException, InterruptedException {
+        Job job = timeouts.newJob(token);
+        try {
+            return run(operation, output_file_path, job);
+        } finally {
+            job.finish();
+        }
+    }
+
+    private Path run(OperationRequest operation, String output_file_path, Job job)
+            throws IOException, InterruptedException {
+        CacheLookup lookup = lookupResult(operation, output_file_path);
+        if (lookup.hit) return Paths.get(output_file_path);
+        if (lookup.key == null || single_flight == null) {
+            return runUncached(lookup.key, operation, output_file_path, job);
+        }
+        // the shared run outlives any one caller, so it is not tied to this thread
+        return await(coalesce(lookup.key, operation, output_file_path, StageLimits.unlimited, job));
+    }
+
+    // Cancelling the returned future cancels the run, like cancelling its token.
+    public CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path) {
+        return runAsync(operation, output_file_path, CancellationToken.none);
+    }
+
+    public CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path,
+                                            CancellationToken token) {
+        return runAsync(operation, output_file_path, StageLimits.unlimited, token);
+    }
+
+    CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path, StageLimits limits,
+                                     CancellationToken token) {
+        Job job = timeouts.newJob(token);
+        return bind(job, runAsync(operation, output_file_path, limits, job));
+    }
+
+    private CompletableFuture<Path> runAsync(OperationRequest operation, String output_file_path, StageLimits limits,
+                                             Job job) {
+        if (!needsKey()) return runUncachedAsync(null, operation, output_file_path, limits, job);
+        // hashing the input reads all of it, so it is kept off the caller's thread
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return lookupResult(operation, output_file_path);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, client.dispatcher().executorService()).thenCompose(lookup -> {
+            if (lookup.hit) return CompletableFuture.completedFuture(Paths.get(output_file_path));
+            if (lookup.key == null || single_flight == null) {
+                return runUncachedAsync(lookup.key, operation, output_file_path, limits, job);
+            }
+            return coalesce(lookup.key, operation, output_file_path, limits, job);
+        });
+    }
+
+    // Joins the run of the same key in flight, or starts it under a job of its own, cancelled once every
+    // caller left. Each caller waits no longer than its own job allows and gets a copy of the result.
+    private CompletableFuture<Path> coalesce(String key, OperationRequest operation, String output_file_path,
+                                             StageLimits limits, Job job) {
+        Path output_path = Paths.get(output_file_path);
+        return single_flight.execute(key, operation.getEndpoint(), job,
+                                     shared -> runUncachedAsync(key, operation, output_file_path, limits, shared))
+            .thenApply(shared_path -> {
+                try {
+                    return copyShared(shared_path, output_path);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+    }
+
+    private Path runUncached(String key, OperationRequest operation, String output_file_path, Job job)
+            throws IOException, InterruptedException {
+        TaskJournal.Entry entry = journal.findByInputKey(key);
+        CompletableFuture<Path> attached = new CompletableFuture<>();
+        String task_id = null;
+        Path path = null;
+        Throwable error = null;
+        try {
+            if (entry != null) {
+                CompletableFuture<Path> running = attached_tasks.putIfAbsent(entry.getTaskId(), attached);
+                if (running != null) return await(join(running, entry.getTaskId(), output_file_path, job));
+                task_id = entry.getTaskId();
+            } else {
+                task_id = submit(operation, key, job);
+                attached_tasks.put(task_id, attached);
+                journalSubmitted(task_id, key, operation, output_file_path);
+            }
+            String doc_id = entry != null && entry.getDocId() != null ? entry.getDocId()
+                            : journaledPoll(task_id, operation.getEndpoint(), job);
+            path = journaledDownload(task_id, doc_id, output_file_path, job);
+            return storeResult(key, path);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (task_id != null) detach(task_id, attached, path, error);
+        }
+    }
+
+    // The job ends with its run: a cancelled future cancels the job, and the job is unlinked from its
+    // caller's token.
+    private static <T> CompletableFuture<T> bind(Job job, CompletableFuture<T> run) {
+        run.whenComplete((value, error) -> {
+            if (run.isCancelled()) job.cancel();
+            job.finish();
+        });
+        return run;
+    }
+
+    // Fails the stage as soon as the job is cancelled, also while it waits for a permit of its StageLimits,
+    // which then skip it.
+    private static <T> CompletableFuture<T> stopOnCancel(Job job, String what, CompletableFuture<T> stage) {
+        CancellationToken.Registration registration =
+            job.onCancel(() -> job.failCancelled(stage, what));
+        stage.whenComplete((value, error) -> registration.remove());
+        return stage;
+    }
+
+    // Takes over the journaled task of an earlier run of the same input that ended without its result,
+    // e.g. on a timeout, or joins the run of this engine still waiting on it, so that the input is never
+    // submitted twice. Without a journaled task the operation is submitted.
+    private CompletableFuture<Path> runUncachedAsync(String key, OperationRequest operation, String output_file_path,
+                                                     StageLimits limits, Job job) {
+        TaskJournal.Entry entry = journal.findByInputKey(key);
+        CompletableFuture<Path> attached = new CompletableFuture<>();
+        CompletableFuture<Path> run;
+        if (entry != null) {
+            CompletableFuture<Path> running = attached_tasks.putIfAbsent(entry.getTaskId(), attached);
+            if (running != null) return join(running, entry.getTaskId(), output_file_path, job);
+            run = attach(entry.getTaskId(), attached,
+                         continueAsync(entry.getTaskId(), operation.getEndpoint(), entry.getDocId(), output_file_path,
+                                       limits, job));
+        } else {
+            run = stopOnCancel(job, operation.getEndpoint(), limits.upload(() -> submitAsync(operation, key, job)))
+                .thenCompose(task_id -> {
+                    attached_tasks.put(task_id, attached);
+                    try {
+                        journalSubmitted(task_id, key, operation, output_file_path);
+                    } catch (IOException e) {
+                        return attach(task_id, attached, failedFuture(e));
+                    }
+                    return attach(task_id, attached, continueAsync(task_id, operation.getEndpoint(), null,
+                                                                   output_file_path, limits, job));
+                });
+        }
+        return run.thenApply(path -> storeResult(key, path));
+    }
+
+    // Completes the attached result with that of the run, once the task is no longer attached.
+    private CompletableFuture<Path> attach(String task_id, CompletableFuture<Path> attached,
+                                           CompletableFuture<Path> run) {
+        run.whenComplete((path, error) -> detach(task_id, attached, path, error));
+        return run;
+    }
+
+    // Detached first, so that a run failing with its task still outstanding leaves it to the next rerun.
+    private void detach(String task_id, CompletableFuture<Path> attached, Path path, Throwable error) {
+        attached_tasks.remove(task_id, attached);
+        if (error == null) {
+            attached.complete(path);
+        } else {
+            attached.completeExceptionally(unwrap(error));
+        }
+    }
+
+    // Waits for the run already attached to the task, no longer than this job may, and copies its result to
+    // this run's output path. Cancelling this run leaves the other one going.
+    private CompletableFuture<Path> join(CompletableFuture<Path> running, String task_id, String output_file_path,
+                                         Job job) {
+        Path output_path = Paths.get(output_file_path);
+        return job.bound("Task " + task_id, running.thenApply(shared_path -> {
+            try {
+                return copyShared(shared_path, output_path);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }));
+    }
+
+    // Polls the task unless its docId is already known, downloads the result and closes the journal entry,
+    // also when the result cannot be downloaded for good.
+    private CompletableFuture<Path> continueAsync(String task_id, String endpoint, String doc_id,
+                                                  String output_file_path, StageLimits limits, Job job) {
+        CompletableFuture<String> known = doc_id != null ? CompletableFuture.completedFuture(doc_id)
+                                          : journaledPollAsync(task_id, endpoint, limits, job);
+        return known
+            .thenCompose(ready -> stopOnCancel(job, "download",
+                limits.download(() -> downLoadFileByDocIdAsync(ready, output_file_path, job))))
+            .handle((path, error) -> {
+                try {
+                    if (error == null || hasFailed(unwrap(error))) journalFinished(task_id);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                if (error == null) return path;
+                throw error instanceof CompletionException ? (CompletionException) error
+                                                           : new CompletionException(error);
+            });
+    }
+
+    // Continues every task left outstanding in the journal, by a previous process when it is persistent:
+    // each is polled unless it had already completed, and its result downloaded to the output path it was
+    // submitted with, without uploading anything again.
+    public List<CompletableFuture<Path>> resumeAsync() {
+        return new ArrayList<>(resumeAsync(StageLimits.unlimited, CancellationToken.none).values());
+    }
+
+    // By journal entry. A task a run is already waiting on is left to it.
+    Map<TaskJournal.Entry, CompletableFuture<Path>> resumeAsync(StageLimits limits, CancellationToken token) {
+        Map<TaskJournal.Entry, CompletableFuture<Path>> resumed = new LinkedHashMap<>();
+        for (TaskJournal.Entry entry : journal.outstanding()) {
+            CompletableFuture<Path> attached = new CompletableFuture<>();
+            if (attached_tasks.putIfAbsent(entry.getTaskId(), attached) != null) continue;
+            Job job = timeouts.newJob(token);
+            resumed.put(entry, bind(job, attach(entry.getTaskId(), attached,
+                continueAsync(entry.getTaskId(), entry.getEndpoint(), entry.getDocId(), entry.getOutputPath(), limits,
+                              job))));
+        }
+        return resumed;
+    }
+
+    private CompletableFuture<String> journaledPollAsync(String task_id, String endpoint, StageLimits limits,
+                                                         Job job) {
+        CompletableFuture<String> polled = limits.poll(() -> pollForDocIdAsync(task_id, endpoint, job));
+        return stopOnCancel(job, "Task " + task_id, polled).handle((doc_id, error) -> {
+            try {
+                if (error == null) return journalCompleted(task_id, doc_id);
+                if (hasFailed(unwrap(error))) journalFinished(task_id);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+    }
+
+    private String journaledPoll(String task_id, String endpoint, Job job) throws IOException, InterruptedException {
+        String doc_id;
+        try {
+            doc_id = pollForDocId(task_id, endpoint, job);
+        } catch (RestException e) {
+            if (hasFailed(e)) journalFinished(task_id);
+            throw e;
+        }
+        return journalCompleted(task_id, doc_id);
+    }
+
+    // A result the server refuses for good, e.g. an expired docId, cannot be downloaded by a rerun either:
+    // the task is finished so that the next run submits the input again.
+    private Path journaledDownload(String task_id, String doc_id, String output_file_path, Job job)
+            throws IOException {
+        Path path;
+        try {
+            path = downLoadFileByDocId(doc_id, output_file_path, job);
+        } catch (RestException e) {
+            if (hasFailed(e)) journalFinished(task_id);
+            throw e;
+        }
+        journalFinished(task_id);
+        return path;
+    }
+
+    // The task failed: there is nothing left to resume. A server that was merely unavailable leaves the
+    // task to be picked up by a rerun.
+    private static boolean hasFailed(Throwable error) {
+        return error instanceof RestException && !RetryPolicy.isTransient(error);
+    }
+
+    private String journalSubmitted(String task_id, String key, OperationRequest operation, String output_file_path)
+            throws IOException {
+        journal.submitted(task_id, key, operation.getEndpoint(),
+                          Paths.get(output_file_path).toAbsolutePath().toString());
+        return task_id;
+    }
+
+    private String journalCompleted(String task_id, String doc_id) throws IOException {
+        journal.completed(task_id, doc_id);
+        return doc_id;
+    }
+
+    private void journalFinished(String task_id) throws IOException {
+        journal.finished(task_id);
+    }
+
+    // Runs that joined an identical one already in flight instead of sending their own requests.
+    public long getCoalescedRunCount() {
+        return single_flight == null ? 0 : single_flight.coalescedCount();
+    }
+
+    private static final class CacheLookup {
+        private static final CacheLookup uncacheable = new CacheLookup(null, false);
+
+        // null when the operation cannot be cached or coalesced
+        private final String key;
+        private final boolean hit;
+
+        CacheLookup(String key, boolean hit) {
+            this.key = key;
+            this.hit = hit;
+        }
+    }
+
+    // The key the result of the operation is stored under, e.g. for MemoryResultCache.getBuffer. Null when
+    // a document is an InputStream, which cannot be hashed without consuming it.
+    public String resultKey(OperationRequest operation) throws IOException {
+        return OperationKey.of(base_url.toString(), operation);
+    }
+
+    // On a hit the stored result has been copied to output_file_path. The store is best effort:
+    // when it fails, the operation simply runs.
+    private CacheLookup lookupResult(OperationRequest operation, String output_file_path) throws IOException {
+        if (!needsKey()) return CacheLookup.uncacheable;
+        String key = resultKey(operation);
+        if (key == null) return CacheLookup.uncacheable;
+        if (result_store == null) return new CacheLookup(key, false);
+        return new CacheLookup(key, lookup(result_store, key, prepareOutput(output_file_path)));
+    }
+
+    private boolean needsKey() {
+        return result_store != null || single_flight != null || journal_configured;
+    }
+
+    private Path storeResult(String key, Path result_path) {
+        return store(result_store, key, result_path);
+    }
+
+    private static Path store(ResultStore store, String key, Path path) {
+        if (key == null || store == null) return path;
+        try {
+            store.put(key, path);
+        } catch (IOException e) {
+            store.getMetrics().recordError();
+        }
+        return path;
+    }
+
+    private static boolean lookup(ResultStore store, String key, Path output_path) {
+        if (store == null) return false;
+        try {
+            return store.get(key, output_path);
+        } catch (IOException e) {
+            store.getMetrics().recordError();
+            return false;
+        }
+    }
+
+    // The run that did the work downloaded to its own output path; the others copy from there.
+    private static Path copyShared(Path shared_path, Path output_path) throws IOException {
+        if (shared_path.toAbsolutePath().normalize().equals(output_path.toAbsolutePath().normalize())) {
+            return output_path;
+        }
+        prepareOutput(output_path.toString());
+        Path part_path = output_path.resolveSibling(output_path.getFileName() + ".part");
+        try {
+            Files.copy(shared_path, part_path, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(part_path, output_path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part_path);
+            throw e;
+        }
+        return output_path;
+    }
+
+    // Waits for a shared run or download. A caller interrupted while waiting gets an
+    // InterruptedIOException, with the interrupt flag kept, and leaves the shared work to the others.
+    private static Path await(CompletableFuture<Path> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            flight.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shared transfer");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    // Upload the input documents and create a new workflow task. Retried only when the server surely
+    // did not create a task, see RetryPolicy.isSafeToResubmit, and never when a document can only be sent
+    // once, e.g. an InputStream: the error of the first attempt is reported instead.
+    // Unlike run, it creates a new task on every call.
+    public String submit(OperationRequest operation) throws IOException {
+        return submit(operation, null, timeouts.newJob(CancellationToken.none));
+    }
+
+    // key is the OperationKey sent along as the idempotency key, null for none.
+    String submit(OperationRequest operation, String key, Job job) throws IOException {
+        long timeout = timeouts.getUploadTimeout(uploadSize(operation));
+        return retrying(operation.getEndpoint(), job, resubmittable(operation), () ->
+            execute(operation.getEndpoint(), job, timeout, permit -> newTimedSubmitRequest(operation, key, permit),
+                    this::readTaskId));
+    }
+
+    public CompletableFuture<String> submitAsync(OperationRequest operation) {
+        return submitAsync(operation, null, timeouts.newJob(CancellationToken.none));
+    }
+
+    CompletableFuture<String> submitAsync(OperationRequest operation, String key, Job job) {
+        long timeout = timeouts.getUploadTimeout(uploadSize(operation));
+        return retryingAsync(operation.getEndpoint(), job, resubmittable(operation), () ->
+            enqueue(operation.getEndpoint(), job, timeout, permit -> newTimedSubmitRequest(operation, key, permit),
+                    this::readTaskId));
+    }
+
+    private static Predicate<Throwable> resubmittable(OperationRequest operation) {
+        for (OperationRequest.FilePart part : operation.getFiles()) {
+            if (part.getSource().isOneShot()) return error -> false;
+        }
+        return RetryPolicy::isSafeToResubmit;
+    }
+
+    // -1 when a document is a stream of unknown length
+    private static long uploadSize(OperationRequest operation) {
+        long size = 0;
+        for (OperationRequest.FilePart part : operation.getFiles()) {
+            long length = part.getSource().contentLength();
+            if (length < 0) return -1;
+            size += length;
+        }
+        return size;
+    }
+
+    public TaskInfo getTaskInfo(String task_id) throws IOException {
+        return getTaskInfo(task_id, Job.none);
+    }
+
+    private TaskInfo getTaskInfo(String task_id, Job job) throws IOException {
+        return retrying("task", job, TaskEngine::isTransientStatusError, () ->
+            execute("task", job, timeouts.getStatusTimeout(), permit -> newTaskInfoRequest(task_id),
+                    response -> readTaskInfo(task_id, response)));
+    }
+
+    // Shared by every waiter on the task, so bounded by the status timeout only.
+    public CompletableFuture<TaskInfo> getTaskInfoAsync(String task_id) {
+        return retryingAsync("task", Job.none, TaskEngine::isTransientStatusError, () ->
+            enqueue("task", Job.none, timeouts.getStatusTimeout(), permit -> newTaskInfoRequest(task_id),
+                    response -> readTaskInfo(task_id, response)));
+    }
+
+    // "The task is running" is an answer, polled again on the poll schedule rather than retried.
+    private static boolean isTransientStatusError(Throwable error) {
+        return RetryPolicy.isTransient(error)
+               && !(error instanceof RestException && isTaskRunning((RestException) error));
+    }
+
+    private interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    // A retry that could not start before the job's deadline is not waited for, and the wait ends early
+    // when the job is cancelled.
+    private <T> T retrying(String what, Job job, Predicate<Throwable> retryable, Attempt<T> attempt)
+            throws IOException {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return attempt.run();
+            } catch (IOException e) {
+                if (attempts >= retry_policy.getMaxAttempts() || !retryable.test(e)) throw e;
+                long backoff = retry_policy.backoff(attempts + 1);
+                if (backoff >= job.remainingMiliseconds()) throw e;
+                retry_metrics.recordRetry();
+                try {
+                    job.sleep(backoff, what);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry");
+                }
+            }
+        }
+    }
+
+    // Waits between attempts on the shared TimerWheel, holding no thread. Cancelling the returned future
+    // cancels the attempt in flight, and cancelling the job ends the wait for the next one.
+    private <T> CompletableFuture<T> retryingAsync(String what, Job job, Predicate<Throwable> retryable,
+                                                   Supplier<CompletableFuture<T>> attempt) {
+        if (retry_policy.getMaxAttempts() == 1) return attempt.get();
+        CompletableFuture<T> result = stopOnCancel(job, what, new CompletableFuture<>());
+        AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+        result.whenComplete((value, error) -> {
+            CompletableFuture<T> running = current.get();
+            if (result.isCancelled() && running != null) running.cancel(true);
+        });
+        attemptAsync(job, retryable, attempt, 1, result, current);
+        return result;
+    }
+
+    private <T> void attemptAsync(Job job, Predicate<Throwable> retryable, Supplier<CompletableFuture<T>> attempt,
+                                  int attempts, CompletableFuture<T> result,
+                                  AtomicReference<CompletableFuture<T>> current) {
+        if (result.isDone()) return;
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        current.set(future);
+        if (result.isCancelled()) future.cancel(true);
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            long backoff = retry_policy.backoff(attempts + 1);
+            if (attempts >= retry_policy.getMaxAttempts() || !retryable.test(cause) || result.isDone()
+                || backoff >= job.remainingMiliseconds()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            retry_metrics.recordRetry();
+            TimerWheel.shared().schedule(() -> attemptAsync(job, retryable, attempt, attempts + 1, result, current),
+                                         backoff, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    // Runs one request within the circuit breaker and the rate and concurrency limits of its endpoint,
+    // cancelled after timeout_in_miliseconds (0 for none), when the job's deadline passes or when the job is
+    // cancelled. An open circuit or a stopped job fails the call before anything is sent.
+    private <T> T execute(String endpoint, Job job, long timeout_in_miliseconds,
+                          Function<Throttle.Permit, Request> request, CallFuture.ResponseHandler<T> handler)
+            throws IOException {
+        job.check(endpoint);
+        CircuitBreaker.Call guard = circuit_breaker.acquire(endpoint);
+        Throttle.Permit permit;
+        try {
+            permit = throttle.acquire(endpoint, job);
+        } catch (IOException e) {
+            guard.record(e, -1);
+            throw e;
+        }
+        CallWatchdog watchdog = new CallWatchdog(endpoint, job);
+        Request built = null;
+        long started_nanos = System.nanoTime();
+        try {
+            built = request.apply(permit);
+            Call call = newCall(built, watchdog);
+            watchdog.watch(call, timeout_in_miliseconds);
+            try (Response response = call.execute()) {
+                permit.responded();
+                T value = handler.handle(response);
+                release(guard, permit, null);
+                recordRequest(endpoint, built, started_nanos, null);
+                return value;
+            }
+        } catch (IOException e) {
+            IOException cause = watchdog.translate(e);
+            release(guard, permit, cause);
+            recordRequest(endpoint, built, started_nanos, cause);
+            throw cause;
+        } catch (RuntimeException e) {
+            release(guard, permit, e);
+            recordRequest(endpoint, built, started_nanos, e);
+            throw e;
+        } finally {
+            watchdog.disarm();
+        }
+    }
+
+    private <T> CompletableFuture<T> enqueue(String endpoint, Job job, long timeout_in_miliseconds,
+                                             Function<Throttle.Permit, Request> request,
+                                             CallFuture.ResponseHandler<T> handler) {
+        IOException stopped = job.stopped(endpoint);
+        if (stopped != null) return failedFuture(stopped);
+        CircuitBreaker.Call guard;
+        try {
+            guard = circuit_breaker.acquire(endpoint);
+        } catch (CircuitOpenException e) {
+            return failedFuture(e);
+        }
+        CallWatchdog watchdog = new CallWatchdog(endpoint, job);
+        CompletableFuture<Throttle.Permit> acquired = throttle.acquireAsync(endpoint, job);
+        Throttle.Permit permit = acquired.getNow(null);
+        // without a wait the CallFuture itself is returned, so cancelling it still cancels the call
+        if (permit != null) return send(endpoint, guard, permit, watchdog, timeout_in_miliseconds, request, handler);
+        acquired.whenComplete((granted, error) -> {
+            if (error != null) guard.record(unwrap(error), -1);
+        });
+        return acquired.thenCompose(granted -> send(endpoint, guard, granted, watchdog, timeout_in_miliseconds,
+                                                    request, handler));
+    }
+
+    private <T> CompletableFuture<T> send(String endpoint, CircuitBreaker.Call guard, Throttle.Permit permit,
+                                          CallWatchdog watchdog, long timeout_in_miliseconds,
+                                          Function<Throttle.Permit, Request> request,
+                                          CallFuture.ResponseHandler<T> handler) {
+        CompletableFuture<T> call;
+        Request built = null;
+        long started_nanos = System.nanoTime();
+        try {
+            built = request.apply(permit);
+            Call http_call = newCall(built, watchdog);
+            watchdog.watch(http_call, timeout_in_miliseconds);
+            call = CallFuture.enqueue(http_call, response -> {
+                permit.responded();
+                return handler.handle(response);
+            }, watchdog);
+        } catch (IOException e) {
+            release(guard, permit, e);
+            recordRequest(endpoint, built, started_nanos, e);
+            return failedFuture(e);
+        } catch (RuntimeException e) {
+            release(guard, permit, e);
+            recordRequest(endpoint, built, started_nanos, e);
+            throw e;
+        }
+        Request sent = built;
+        call.whenComplete((value, error) -> {
+            release(guard, permit, error);
+            recordRequest(endpoint, sent, started_nanos, error);
+        });
+        return call;
+    }
+
+    // The watchdog travels with the request, for handlers that extend the call's timeout.
+    private Call newCall(Request request, CallWatchdog watchdog) {
+        return client.newCall(request.newBuilder().tag(CallWatchdog.class, watchdog).build());
+    }
+
+    private static void release(CircuitBreaker.Call guard, Throttle.Permit permit, Throwable error) {
+        permit.release(error);
+        guard.record(error, permit.getLatencyNanos());
+    }
+
+    // request is null when building it failed, and nothing was uploaded.
+    private void recordRequest(String endpoint, Request request, long started_nanos, Throwable error) {
+        long bytes_uploaded = 0;
+        if (request != null && request.body() != null) {
+            try {
+                bytes_uploaded = request.body().contentLength();
+            } catch (IOException e) {
+                // unknown, counted as 0
+            }
+        }
+        metrics.endpoint(endpoint).recordRequest(bytes_uploaded,
+                                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started_nanos),
+                                                 error != null);
+    }
+
+    // Polls until the task completes or fails, or the job's deadline passes.
+    public String pollForDocId(String task_id) throws IOException, InterruptedException {
+        return pollForDocId(task_id, "task", timeouts.newJob(CancellationToken.none));
+    }
+
+    // The task is counted in the metrics of endpoint, that of the operation which created it.
+    String pollForDocId(String task_id, String endpoint, Job job) throws IOException, InterruptedException {
+        PollStrategy.Schedule schedule = poll_strategy.newSchedule();
+        long started_nanos = System.nanoTime();
+        int polls = 0;
+        sleep(schedule.firstDelay(), job, task_id);
+        do{
+            int percentage;
+            try {
+                polls++;
+                TaskInfo task_info = getTaskInfo(task_id, job);
+                poll_metrics.recordPoll();
+                if(task_info.isCompleted()){
+                    poll_metrics.recordCompleted();
+                    metrics.endpoint(endpoint).recordTask(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started_nanos), polls);
+                    listener.onCompleted(task_id, task_info.getDocId());
+                    return task_info.getDocId();
+                }
+                percentage = task_info.getPercentage();
+            } catch (RestException e) {
+                poll_metrics.recordPoll();
+                // when task is running, the task api will return error
+                // if task is running, try to get taskInfo later.
+                if(!isTaskRunning(e)) throw e;
+                percentage = -1;
+            } catch (CircuitOpenException e) {
+                // nothing was sent, and the task goes on on the server
+                polls--;
+                sleep(circuitDelay(schedule, e), job, task_id);
+                continue;
+            }
+            long delay = schedule.nextDelay(percentage);
+            if (percentage < 0) listener.onRunning(task_id, delay);
+            sleep(delay, job, task_id);
+        }while(!job.isStopped());
+        throw job.stopped("Task " + task_id);
+    }
+
+    // A status request refused by an open circuit is asked again on the schedule of a running task, but not
+    // before the endpoint lets a probe through.
+    static long circuitDelay(PollStrategy.Schedule schedule, CircuitOpenException e) {
+        return Math.max(schedule.nextDelay(-1), e.getRetryAfterInMiliseconds());
+    }
+
+    // Never past the job's deadline, and over as soon as the job is cancelled.
+    private void sleep(long delay_in_miliseconds, Job job, String task_id) throws IOException, InterruptedException {
+        poll_metrics.recordDelay(Math.min(delay_in_miliseconds, job.remainingMiliseconds()));
+        job.sleep(delay_in_miliseconds, "Task " + task_id);
+    }
+
+    // Waits for the task on the engine's PollScheduler: no thread is held while the task is pending,
+    // and concurrent waiters on the same taskId share one poll loop. Fails with a DeadlineExceededException
+    // once the job's deadline passes. Cancelling the returned future stops waiting, and the task is no longer
+    // polled when nobody else waits for it.
+    public CompletableFuture<String> pollForDocIdAsync(String task_id) {
+        return pollForDocIdAsync(task_id, "task", timeouts.newJob(CancellationToken.none));
+    }
+
+    CompletableFuture<String> pollForDocIdAsync(String task_id, String endpoint, Job job) {
+        return poll_scheduler.await(task_id, endpoint, job);
+    }
+
+    public int getPendingTaskCount() {
+        return poll_scheduler.pendingTasks();
+    }
+
+    // A docId never changes once produced, so with a download store repeats are copied from the store
+    // instead of fetched again. Concurrent downloads of the same docId and file name share one transfer,
+    // which runs under a job of its own, so the blocking variant waits on it like the others.
+    public Path downLoadFileByDocId(String doc_id, String output_file_path) throws IOException {
+        return downLoadFileByDocId(doc_id, output_file_path, timeouts.newJob(CancellationToken.none));
+    }
+
+    Path downLoadFileByDocId(String doc_id, String output_file_path, Job job) throws IOException {
+        Path output_path = prepareOutput(output_file_path);
+        String key = OperationKey.ofDownload(base_url.toString(), doc_id, output_path.getFileName().toString());
+        if (lookup(download_store, key, output_path)) return output_path;
+        return await(sharedTransferAsync(key, doc_id, output_path, job));
+    }
+
+    public CompletableFuture<Path> downLoadFileByDocIdAsync(String doc_id, String output_file_path) {
+        return downLoadFileByDocIdAsync(doc_id, output_file_path, timeouts.newJob(CancellationToken.none));
+    }
+
+    CompletableFuture<Path> downLoadFileByDocIdAsync(String doc_id, String output_file_path, Job job) {
+        Path output_path;
+        try {
+            output_path = prepareOutput(output_file_path);
+        } catch (IOException e) {
+            return failedFuture(e);
+        }
+        String key = OperationKey.ofDownload(base_url.toString(), doc_id, output_path.getFileName().toString());
+        if (download_store == null) return sharedTransferAsync(key, doc_id, output_path, job);
+        return CompletableFuture.supplyAsync(() -> lookup(download_store, key, output_path),
+                                             client.dispatcher().executorService())
+            .thenCompose(hit -> hit ? CompletableFuture.completedFuture(output_path)
+                                    : sharedTransferAsync(key, doc_id, output_path, job));
+    }
+
+    // Downloads that joined a transfer of the same docId already in flight.
+    public long getCoalescedDownloadCount() {
+        return download_flight.coalescedCount();
+    }
+
+    private CompletableFuture<Path> sharedTransferAsync(String key, String doc_id, Path output_path, Job job) {
+        return download_flight.execute(key, "download", job, shared ->
+            retryingAsync("download", shared, RetryPolicy::isTransient,
+                          () -> hedgedTransferAsync(doc_id, output_path, shared))
+                .thenApply(path -> store(download_store, key, path)))
+            .thenApply(shared_path -> {
+                try {
+                    return copyShared(shared_path, output_path);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+    }
+
+    // Without hedging, or before enough downloads were seen to know what is slow, a single attempt.
+    // Otherwise a second attempt starts when the first has not answered within the 95th percentile of
+    // the time to response headers, and whichever answers first writes the file.
+    private CompletableFuture<Path> hedgedTransferAsync(String doc_id, Path output_path, Job job) {
+        long hedge_delay = hedge_downloads && download_latency.getCount() >= min_hedge_samples
+                           ? Math.max(1, download_latency.getPercentile(0.95)) : -1;
+        if (hedge_delay < 0) {
+            DownloadAttempt attempt = new DownloadAttempt(doc_id, output_path, null);
+            return enqueue("download", job, timeouts.getDownloadTimeout(-1), permit -> attempt.newRequest(),
+                           attempt::handle);
+        }
+        Hedge hedge = new Hedge(doc_id, output_path, job);
+        hedge.start(false);
+        TimerWheel.Timeout timer = TimerWheel.shared().schedule(() -> hedge.start(true), hedge_delay,
+                                                                TimeUnit.MILLISECONDS);
+        hedge.result.whenComplete((path, error) -> {
+            timer.cancel();
+            hedge.cancelAttempts();
+        });
+        return hedge.result;
+    }
+
+    // One download request. With hedging, claimed is shared by the attempts of one download, and only the
+    // attempt that claims it writes the file; the other gives up as soon as its response headers arrive.
+    // Until then the call is bounded by the download timeout for the headers, and from then on by the
+    // timeout for a body of the announced length.
+    private final class DownloadAttempt {
+        private final String doc_id;
+        private final Path output_path;
+        private final AtomicBoolean claimed;
+        private volatile long started_nanos;
+        private volatile boolean winner;
+
+        DownloadAttempt(String doc_id, Path output_path, AtomicBoolean claimed) {
+            this.doc_id = doc_id;
+            this.output_path = output_path;
+            this.claimed = claimed;
+        }
+
+        Request newRequest() {
+            started_nanos = System.nanoTime();
+            return newDownloadRequest(doc_id, output_path);
+        }
+
+        Path handle(Response response) throws IOException {
+            download_latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started_nanos));
+            if (claimed != null && !claimed.compareAndSet(false, true)) {
+                throw new InterruptedIOException("Another attempt is downloading " + doc_id);
+            }
+            winner = true;
+            CallWatchdog watchdog = response.request().tag(CallWatchdog.class);
+            long size = response.body().contentLength();
+            // a body of unknown length is bounded by the job's deadline only
+            if (watchdog != null) watchdog.restart(size < 0 ? 0 : timeouts.getDownloadTimeout(size));
+            return writeDownload(doc_id, output_path, response);
+        }
+    }
+
+    private final class Hedge {
+        private final String doc_id;
+        private final Path output_path;
+        private final Job job;
+        private final CompletableFuture<Path> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        // both guarded by this
+        private final List<CompletableFuture<Path>> attempts = new ArrayList<>(2);
+        private int running;
+
+        Hedge(String doc_id, Path output_path, Job job) {
+            this.doc_id = doc_id;
+            this.output_path = output_path;
+            this.job = job;
+        }
+
+        void start(boolean is_hedge) {
+            synchronized (this) {
+                if (result.isDone() || claimed.get()) return;
+                running++;
+            }
+            if (is_hedge) retry_metrics.recordHedge();
+            DownloadAttempt attempt = new DownloadAttempt(doc_id, output_path, claimed);
+            CompletableFuture<Path> future = enqueue("download", job, timeouts.getDownloadTimeout(-1),
+                                                     permit -> attempt.newRequest(), attempt::handle);
+            synchronized (this) {
+                attempts.add(future);
+            }
+            future.whenComplete((path, error) -> {
+                if (error == null) {
+                    if (is_hedge) retry_metrics.recordHedgeWin();
+                    result.complete(path);
+                    return;
+                }
+                boolean failed;
+                synchronized (this) {
+                    running--;
+                    // the attempt writing the file failed, or the last one still trying did
+                    failed = attempt.winner || (running == 0 && !claimed.get());
+                }
+                if (failed) result.completeExceptionally(unwrap(error));
+            });
+        }
+
+        void cancelAttempts() {
+            List<CompletableFuture<Path>> started;
+            synchronized (this) {
+                started = new ArrayList<>(attempts);
+            }
+            for (CompletableFuture<Path> attempt : started) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    Request newSubmitRequest(OperationRequest operation) {
+        TreeMap<String, String> query_params = new TreeMap<>(operation.getFields());
+        query_params.put("clientId", client_id);
+
+        HttpUrl url = buildURI(operation.getEndpoint())
+            .addQueryParameter("sn", signer.sign(query_params))
+            .addQueryParameter("clientId", client_id)
+            .build();
+
+        MultipartBody.Builder body = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        for (OperationRequest.FilePart part : operation.getFiles()) {
+            body.addFormDataPart(part.getName(), part.getSource().getFileName(),
+                                 part.getSource().toRequestBody(upload_media_type));
+        }
+        for (Map.Entry<String, String> field : operation.getFields().entrySet()) {
+            body.addFormDataPart(field.getKey(), field.getValue());
+        }
+
+        return new Request.Builder()
+            .url(url)
+            .method("POST", body.build())
+            .build();
+    }
+
+    // Counts the latency of the submission from the end of the upload.
+    private Request newTimedSubmitRequest(OperationRequest operation, String key, Throttle.Permit permit) {
+        Request request = newSubmitRequest(operation);
+        Request.Builder timed = request.newBuilder()
+            .method("POST", permit.timeUpload(timeouts.measureUpload(request.body())));
+        if (key != null) timed.header(idempotency_key_header, key);
+        return timed.build();
+    }
+
+    Request newTaskInfoRequest(String task_id) {
+        HttpUrl url = buildURI("task")
+            .addQueryParameter("sn", signer.signTaskInfo(task_id))
+            .addQueryParameter("clientId", client_id)
+            .addQueryParameter("taskId", task_id)
+            .build();
+        return new Request.Builder()
+            .url(url)
+            .build();
+    }
+
+    Request newDownloadRequest(String doc_id, Path output_path) {
+        String file_name = output_path.getFileName().toString();
+
+        HttpUrl url = buildURI("download")
+            .addQueryParameter("sn", signer.signDownload(doc_id, file_name))
+            .addQueryParameter("clientId", client_id)
+            .addQueryParameter("docId", doc_id)
+            .addQueryParameter("fileName", file_name)
+            .build();
+        return new Request.Builder()
+            .url(url)
+            .build();
+    }
+
+    String readTaskId(Response response) throws IOException {
+        TaskResponse task_response = readTaskResponse(response, "http response error:");
+        if (task_response.getTaskId() == null) {
+            throw newRestException(response, task_response, "http response error:");
+        }
+        return task_response.getTaskId();
+    }
+
+    TaskInfo readTaskInfo(String task_id, Response response) throws IOException {
+        TaskInfo task_info = readTaskResponse(response, "Unexpected code ").toTaskInfo();
+        listener.onProgress(task_id, task_info.getPercentage());
+        return task_info;
+    }
+
+    // The whole body is buffered and decoded in place, so it is only turned into a String when it has to
+    // be attached to a RestException.
+    private static TaskResponse readTaskResponse(Response response, String error_message) throws IOException {
+        Buffer body = bufferBody(response);
+        TaskResponse task_response = TaskResponse.read(body);
+        if (!response.isSuccessful()) throw newRestException(response, task_response, "Unexpected code ");
+        if (task_response.getCode() != 0) throw newRestException(response, task_response, error_message);
+        // hand the segments back to Okio's pool right away
+        body.clear();
+        return task_response;
+    }
+
+    private static Buffer bufferBody(Response response) throws IOException {
+        BufferedSource source = response.body().source();
+        source.request(Long.MAX_VALUE);
+        return source.getBuffer();
+    }
+
+    private static RestException newRestException(Response response, TaskResponse task_response, String error_message)
+        throws IOException {
+        return new RestException(response.code(), bufferBody(response).readUtf8(), task_response.getDetail(),
+                                 error_message + response);
+    }
+
+    // The body is streamed to disk through Okio's fixed-size segments, so memory use does not grow with
+    // the size of the result. It is written to a sibling ".part" file first and moved into place once
+    // complete, so a failed transfer never leaves a truncated output behind.
+    private Path writeDownload(String doc_id, Path output_path, Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw newRestException(response, TaskResponse.read(bufferBody(response)), "Unexpected code ");
+        }
+        Path part_path = output_path.resolveSibling(output_path.getFileName() + ".part");
+        try {
+            long started_nanos = System.nanoTime();
+            try (BufferedSink sink = Okio.buffer(Okio.sink(part_path))) {
+                long bytes = sink.writeAll(response.body().source());
+                sink.flush();
+                timeouts.recordDownload(bytes, System.nanoTime() - started_nanos);
+                metrics.endpoint("download").recordDownloaded(bytes);
+            }
+            Files.move(part_path, output_path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part_path);
+            throw e;
+        }
+        listener.onDownloaded(doc_id, output_path);
+        return output_path;
+    }
+
+    private static Path prepareOutput(String output_file_path) throws IOException {
+        Path output_path = Paths.get(output_file_path);
+        Path dir = output_path.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        return output_path;
+    }
+
+    static boolean isTaskRunning(RestException e) {
+        String detail = e.getDetail();
+        return detail != null && detail.indexOf("The task is running") > -1;
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the task status returned by the Foxit Cloud API task interface.
+
+package com.foxit.simple_demo.client;
+
+public final class TaskInfo {
+
+    private final String task_id;
+    private final int percentage;
+    private final String doc_id;
+
+    public TaskInfo(String task_id, int percentage, String doc_id) {
+        this.task_id = task_id;
+        this.percentage = percentage;
+        this.doc_id = doc_id;
+    }
+
+    public String getTaskId() {
+        return task_id;
+    }
+
+    public int getPercentage() {
+        return percentage;
+    }
+
+    public String getDocId() {
+        return doc_id;
+    }
+
+    public boolean isCompleted() {
+        return percentage == 100;
+    }
+}
@@ -0,0 +1,484 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the crash-safe journal of submitted tasks.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Remembers every task between its submission and the download of its result, so a process that dies
+// in between can poll and download the task after a restart instead of uploading the input again and
+// paying for a second task.
+//
+// The journal is an append-only log in a memory-mapped file. Appending is a copy into the mapping:
+// no system call, and the data is in the page cache, so it survives the death of the JVM as soon as
+// the append returns. Surviving a crash of the machine needs force(), which sync() does. Each record is
+//   int length | int crc32 of the body | body: byte type, then length-prefixed UTF-8 strings
+// and a length of 0 ends the log. On open the log is replayed up to the first record that is torn or
+// fails its checksum, so a write cut short by a crash is simply dropped.
+//
+// Finished tasks leave dead records behind. Once they outnumber the live ones, the log is compacted:
+// the outstanding tasks are written to a new file, which then replaces the old one in one rename. Open
+// compacts at once; afterwards a background thread does, so that finishing a task, often on an OkHttp
+// callback thread, never waits for the new file to be written. The records appended meanwhile are copied
+// over just before the rename, the only step that holds the journal's lock.
+//
+// A journal from inMemory() keeps the same entries without a file, for the lifetime of the process only,
+// and forgets the oldest outstanding tasks beyond max_tasks. Clients use one when no journal is given.
+public final class TaskJournal implements AutoCloseable {
+
+    public static final int default_max_tasks = 10000;
+
+    private static final int magic = 0x464a4e31;
+    private static final int header_size = 4;
+    private static final int record_header_size = 8;
+    private static final long initial_size = 1 << 20;
+    private static final int compaction_min_records = 1024;
+
+    private static final byte submitted_record = 1;
+    private static final byte completed_record = 2;
+    private static final byte finished_record = 3;
+
+    // Compacts the logs of every journal, one at a time.
+    private static final ThreadPoolExecutor compactor = newCompactor();
+
+    // A task recorded as submitted and not yet finished.
+    public static final class Entry {
+        private final String task_id;
+        private final String input_key;
+        private final String endpoint;
+        private final String output_path;
+        private volatile String doc_id;
+
+        Entry(String task_id, String input_key, String endpoint, String output_path) {
+            this.task_id = task_id;
+            this.input_key = input_key;
+            this.endpoint = endpoint;
+            this.output_path = output_path;
+        }
+
+        public String getTaskId() {
+            return task_id;
+        }
+
+        // The OperationKey of the input, empty when the input could not be hashed.
+        public String getInputKey() {
+            return input_key;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getOutputPath() {
+            return output_path;
+        }
+
+        // null until the task was seen completed
+        public String getDocId() {
+            return doc_id;
+        }
+    }
+
+    // null in memory
+    private final Path file;
+    // 0 for no limit
+    private final int max_tasks;
+    // In submission order, and all guarded by this.
+    private final LinkedHashMap<String, Entry> outstanding = new LinkedHashMap<>();
+    private final Map<String, Entry> by_input_key = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private int records;
+    // the records the log needs before it is compacted, raised after a compaction failed
+    private int compaction_threshold = compaction_min_records;
+    private boolean compacting;
+    private boolean closed;
+
+    private TaskJournal(Path file, int max_tasks) {
+        this.file = file;
+        this.max_tasks = max_tasks;
+    }
+
+    public static TaskJournal open(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        TaskJournal journal = new TaskJournal(file, 0);
+        synchronized (journal) {
+            journal.map(Math.max(initial_size, Files.exists(file) ? Files.size(file) : 0));
+            journal.replay();
+            if (journal.isWasteful()) {
+                journal.install(journal.writeCompacted(journal.outstanding()), journal.log.position());
+            }
+        }
+        return journal;
+    }
+
+    public static TaskJournal inMemory(int max_tasks) {
+        if (max_tasks <= 0) throw new IllegalArgumentException("max_tasks must be positive");
+        return new TaskJournal(null, max_tasks);
+    }
+
+    // Whether the entries survive the process.
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    public synchronized void submitted(String task_id, String input_key, String endpoint, String output_path)
+            throws IOException {
+        Entry entry = new Entry(task_id, input_key == null ? "" : input_key, endpoint, output_path);
+        append(submitted_record, task_id, entry.input_key, endpoint, output_path);
+        track(entry);
+        if (max_tasks > 0 && outstanding.size() > max_tasks) {
+            untrack(outstanding.keySet().iterator().next());
+        }
+    }
+
+    public synchronized void completed(String task_id, String doc_id) throws IOException {
+        Entry entry = outstanding.get(task_id);
+        if (entry == null) return;
+        append(completed_record, task_id, doc_id);
+        entry.doc_id = doc_id;
+    }
+
+    // The result was downloaded, or the task failed for good: either way there is nothing to resume.
+    public synchronized void finished(String task_id) throws IOException {
+        if (!outstanding.containsKey(task_id)) return;
+        append(finished_record, task_id);
+        untrack(task_id);
+        if (!compacting && isWasteful()) {
+            compacting = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    public synchronized List<Entry> outstanding() {
+        return Collections.unmodifiableList(new ArrayList<>(outstanding.values()));
+    }
+
+    // An outstanding task for the same operation on the same input, or null.
+    public synchronized Entry findByInputKey(String input_key) {
+        return input_key == null || input_key.isEmpty() ? null : by_input_key.get(input_key);
+    }
+
+    // Forces the log to the storage device, for durability beyond the death of the process.
+    public synchronized void sync() {
+        if (log != null) log.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (log == null) return;
+        log.force();
+        channel.close();
+    }
+
+    private void track(Entry entry) {
+        outstanding.put(entry.task_id, entry);
+        if (!entry.input_key.isEmpty()) {
+            by_input_key.put(entry.input_key, entry);
+        }
+    }
+
+    private void untrack(String task_id) {
+        Entry entry = outstanding.remove(task_id);
+        if (entry != null && !entry.input_key.isEmpty()) {
+            by_input_key.remove(entry.input_key, entry);
+        }
+    }
+
+    private void append(byte type, String... fields) throws IOException {
+        if (log == null) return;
+        byte[][] encoded = new byte[fields.length][];
+        int body_size = 1;
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+            body_size += 4 + encoded[i].length;
+        }
+        // room for the record and the 0 length that ends the log
+        if (log.remaining() < record_header_size + body_size + 4) {
+            map(Math.max(log.capacity() * 2L, log.position() + record_header_size + body_size + 4L));
+        }
+        int start = log.position();
+        log.position(start + record_header_size);
+        log.put(type);
+        for (byte[] field : encoded) {
+            log.putInt(field.length);
+            log.put(field);
+        }
+        CRC32 crc = new CRC32();
+        for (int i = start + record_header_size; i < start + record_header_size + body_size; i++) {
+            crc.update(log.get(i));
+        }
+        log.putInt(start + 4, (int) crc.getValue());
+        // ends the log after the record, whatever a reused file held there
+        log.putInt(log.position(), 0);
+        // the length goes in last: until it is written, a reader sees the end of the log here
+        log.putInt(start, body_size);
+        records++;
+    }
+
+    private void replay() throws IOException {
+        log.position(0);
+        if (log.getInt(0) == 0) {
+            log.putInt(0, magic);
+        } else if (log.getInt(0) != magic) {
+            throw new IOException(file + " is not a task journal");
+        }
+        int position = header_size;
+        while (position + record_header_size <= log.capacity()) {
+            int body_size = log.getInt(position);
+            if (body_size <= 0 || position + record_header_size + body_size > log.capacity()) break;
+            int body_start = position + record_header_size;
+            CRC32 crc = new CRC32();
+            for (int i = body_start; i < body_start + body_size; i++) {
+                crc.update(log.get(i));
+            }
+            if ((int) crc.getValue() != log.getInt(position + 4)) break;
+            apply(body_start, body_size);
+            records++;
+            position = body_start + body_size;
+        }
+        // anything after a torn record is garbage: clear its length so it cannot come back to life
+        if (position + 4 <= log.capacity()) {
+            log.putInt(position, 0);
+        }
+        log.position(position);
+    }
+
+    private void apply(int body_start, int body_size) {
+        int[] cursor = {body_start + 1};
+        byte type = log.get(body_start);
+        String task_id = readString(cursor);
+        if (type == submitted_record) {
+            track(new Entry(task_id, readString(cursor), readString(cursor), readString(cursor)));
+        } else if (type == completed_record) {
+            Entry entry = outstanding.get(task_id);
+            if (entry != null) entry.doc_id = readString(cursor);
+        } else if (type == finished_record) {
+            untrack(task_id);
+        }
+    }
+
+    private String readString(int[] cursor) {
+        int length = log.getInt(cursor[0]);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = log.get(cursor[0] + 4 + i);
+        }
+        cursor[0] += 4 + length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isWasteful() {
+        int live = outstanding.size();
+        return file != null && records >= compaction_threshold && records - live > live;
+    }
+
+    // Runs on the compactor: writes the outstanding tasks without holding the lock, then installs them.
+    private void compact() {
+        List<Entry> entries;
+        int from;
+        synchronized (this) {
+            if (closed || log == null) {
+                compacting = false;
+                return;
+            }
+            entries = new ArrayList<>(outstanding.values());
+            from = log.position();
+        }
+        TaskJournal fresh = null;
+        try {
+            fresh = writeCompacted(entries);
+            synchronized (this) {
+                if (!closed) {
+                    install(fresh, from);
+                    fresh = null;
+                }
+            }
+        } catch (IOException e) {
+            // the live log is as it was; tried again once it is twice as long
+            synchronized (this) {
+                compaction_threshold = Math.max(compaction_min_records, records * 2);
+            }
+        } finally {
+            try {
+                if (fresh != null) fresh.discard();
+            } catch (IOException e) {
+                // a stale .compact file is replaced by the next compaction
+            }
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    // A new log holding entries. A doc_id set after the entries were taken is also in the records
+    // install() copies over, and replays to the same entry.
+    private TaskJournal writeCompacted(List<Entry> entries) throws IOException {
+        TaskJournal fresh = new TaskJournal(file.resolveSibling(file.getFileName() + ".compact"), 0);
+        try {
+            Files.deleteIfExists(fresh.file);
+            fresh.map(initial_size);
+            fresh.replay();
+            for (Entry entry : entries) {
+                fresh.append(submitted_record, entry.task_id, entry.input_key, entry.endpoint, entry.output_path);
+                String doc_id = entry.doc_id;
+                if (doc_id != null) {
+                    fresh.append(completed_record, entry.task_id, doc_id);
+                }
+            }
+            // so that install() only has the records it copies over left to force
+            fresh.log.force();
+        } catch (IOException e) {
+            fresh.discard();
+            throw e;
+        }
+        return fresh;
+    }
+
+    // Copies over the records appended to the log since from, and replaces the log with fresh. Guarded by
+    // this.
+    private void install(TaskJournal fresh, int from) throws IOException {
+        int appended = 0;
+        try {
+            int position = from;
+            while (position < log.position()) {
+                position += record_header_size + log.getInt(position);
+                appended++;
+            }
+            fresh.appendRecords(log, from, log.position());
+        } catch (IOException e) {
+            fresh.discard();
+            throw e;
+        }
+        int compacted_position = fresh.log.position();
+        int compacted_records = fresh.records + appended;
+        fresh.release();
+        // Windows does not replace a file that is still mapped. The old log needs no force: it is either
+        // replaced or mapped again as it is in the page cache.
+        int live_position = log.position();
+        unmap(log);
+        log = null;
+        channel.close();
+        try {
+            Files.move(fresh.file, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // the live file is as it was
+            map(Math.max(initial_size, Files.size(file)));
+            log.position(live_position);
+            Files.deleteIfExists(fresh.file);
+            throw e;
+        }
+        map(Math.max(initial_size, Files.size(file)));
+        log.position(compacted_position);
+        records = compacted_records;
+    }
+
+    // Appends the records of source between from and to as they are, checksums included.
+    private void appendRecords(MappedByteBuffer source, int from, int to) throws IOException {
+        int size = to - from;
+        if (log.remaining() < size + 4) {
+            map(Math.max(log.capacity() * 2L, log.position() + size + 4L));
+        }
+        for (int i = from; i < to; i++) {
+            log.put(source.get(i));
+        }
+        log.putInt(log.position(), 0);
+    }
+
+    // Unmaps and deletes a log that was never installed.
+    private void discard() throws IOException {
+        if (log != null) {
+            unmap(log);
+            log = null;
+        }
+        if (channel != null) channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    // Forces and unmaps the log and closes the file. The log must not be touched again until it is mapped.
+    private void release() throws IOException {
+        log.force();
+        unmap(log);
+        log = null;
+        channel.close();
+    }
+
+    // Frees the mapping now rather than once it is garbage collected. Java 9 and later do so through
+    // Unsafe.invokeCleaner, Java 8 through the buffer's own cleaner; where neither can be reached the mapping
+    // is left to the garbage collector.
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafe_class = Class.forName("sun.misc.Unsafe");
+            Field the_unsafe = unsafe_class.getDeclaredField("theUnsafe");
+            the_unsafe.setAccessible(true);
+            Method invoke_cleaner;
+            try {
+                invoke_cleaner = unsafe_class.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object buffer_cleaner = cleaner.invoke(buffer);
+                buffer_cleaner.getClass().getMethod("clean").invoke(buffer_cleaner);
+                return;
+            }
+            invoke_cleaner.invoke(the_unsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+
+    private static ThreadPoolExecutor newCompactor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                         runnable -> {
+            Thread thread = new Thread(runnable, "foxit-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // Maps the first size bytes of the file, growing it if needed; the position is kept.
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new IOException("Task journal " + file + " is full");
+        int position = log == null ? 0 : log.position();
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                       StandardOpenOption.WRITE);
+        }
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        log.position(position);
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the callbacks used to report the progress of Foxit Cloud API tasks.
+
+package com.foxit.simple_demo.client;
+
+import java.nio.file.Path;
+
+public interface TaskListener {
+
+    // Reports nothing, for batch use where thousands of tasks are in flight.
+    TaskListener NONE = new TaskListener() {};
+
+    // Prints the same progress messages as the single document examples.
+    TaskListener CONSOLE = new TaskListener() {
+        @Override
+        public void onProgress(String task_id, int percentage) {
+            System.out.printf("Task process is: %d\n", percentage);
+        }
+
+        @Override
+        public void onRunning(String task_id, long retry_in_miliseconds) {
+            System.out.printf("Task is running, retry in %d miliseconds\n", retry_in_miliseconds);
+        }
+
+        @Override
+        public void onCompleted(String task_id, String doc_id) {
+            System.out.println("Task completed.");
+        }
+
+        @Override
+        public void onDownloaded(String doc_id, Path output_file_path) {
+            System.out.println("Download stream finished.");
+        }
+    };
+
+    default void onProgress(String task_id, int percentage) {
+    }
+
+    default void onRunning(String task_id, long retry_in_miliseconds) {
+    }
+
+    default void onCompleted(String task_id, String doc_id) {
+    }
+
+    default void onDownloaded(String doc_id, Path output_file_path) {
+    }
+}
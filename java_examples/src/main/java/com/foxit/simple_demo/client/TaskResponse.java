@@ -0,0 +1,248 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the streaming decoder of the JSON answers of the submit and task interfaces.
+
+package com.foxit.simple_demo.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import okio.Buffer;
+
+// Reads code, data.detail and data.taskInfo.{taskId, percentage, docId} in one pass over the body,
+// without building a JsonObject tree or a String of the whole response. Unknown members are skipped.
+final class TaskResponse {
+
+    // code of a body that is not the JSON the API documents, e.g. an HTML error page from a proxy
+    static final int invalid_code = -1;
+
+    private int code = invalid_code;
+    private String detail;
+    private String task_id;
+    private int percentage;
+    private String doc_id;
+
+    private TaskResponse() {
+    }
+
+    static TaskResponse read(String body) {
+        if (body == null) return new TaskResponse();
+        Buffer buffer = new Buffer().writeUtf8(body);
+        try {
+            return read(buffer);
+        } catch (IOException e) {
+            // cannot happen when reading from memory
+            return new TaskResponse();
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // Decodes the bytes of the buffer in place, without consuming them, so the caller can still read the
+    // raw body for a RestException. A malformed body decodes to invalid_code rather than failing.
+    static TaskResponse read(Buffer body) throws IOException {
+        TaskResponse response = new TaskResponse();
+        try (JsonReader reader = new JsonReader(new Utf8Reader(body))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        response.code = reader.nextInt();
+                        break;
+                    case "data":
+                        response.readData(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            response.code = invalid_code;
+        }
+        return response;
+    }
+
+    private void readData(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "detail":
+                    detail = nextString(reader);
+                    break;
+                case "taskInfo":
+                    readTaskInfo(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readTaskInfo(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "taskId":
+                    task_id = nextString(reader);
+                    break;
+                case "percentage":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        percentage = reader.nextInt();
+                    }
+                    break;
+                case "docId":
+                    doc_id = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    String getDetail() {
+        return detail;
+    }
+
+    String getTaskId() {
+        return task_id;
+    }
+
+    TaskInfo toTaskInfo() {
+        return new TaskInfo(task_id, percentage, doc_id);
+    }
+
+    // Decodes UTF-8 straight from the Okio segments through an unsafe cursor. InputStreamReader would
+    // allocate an 8 KB byte buffer per response, and a peek() source would pin the segments so they
+    // never return to Okio's pool. Malformed sequences decode to U+FFFD.
+    private static final class Utf8Reader extends Reader {
+        private static final int replacement_character = 0xfffd;
+
+        private final Buffer.UnsafeCursor cursor;
+        private long remaining;
+        private int index;
+        // low half of a surrogate pair that did not fit into the previous read
+        private int pending_low_surrogate = -1;
+
+        Utf8Reader(Buffer buffer) {
+            this.cursor = buffer.readUnsafe();
+            this.remaining = buffer.size();
+            if (remaining > 0) {
+                cursor.seek(0);
+                index = cursor.start;
+            }
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            int count = 0;
+            if (pending_low_surrogate >= 0) {
+                chars[offset + count++] = (char) pending_low_surrogate;
+                pending_low_surrogate = -1;
+            }
+            while (count < length && remaining > 0) {
+                int code_point = nextCodePoint();
+                if (Character.isBmpCodePoint(code_point)) {
+                    chars[offset + count++] = (char) code_point;
+                } else {
+                    chars[offset + count++] = Character.highSurrogate(code_point);
+                    if (count < length) {
+                        chars[offset + count++] = Character.lowSurrogate(code_point);
+                    } else {
+                        pending_low_surrogate = Character.lowSurrogate(code_point);
+                    }
+                }
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        private int nextCodePoint() {
+            int b = nextByte();
+            if (b < 0x80) return b;
+            int extra_bytes;
+            int code_point;
+            if ((b & 0xe0) == 0xc0) {
+                extra_bytes = 1;
+                code_point = b & 0x1f;
+            } else if ((b & 0xf0) == 0xe0) {
+                extra_bytes = 2;
+                code_point = b & 0x0f;
+            } else if ((b & 0xf8) == 0xf0) {
+                extra_bytes = 3;
+                code_point = b & 0x07;
+            } else {
+                return replacement_character;
+            }
+            for (int i = 0; i < extra_bytes; i++) {
+                if (remaining == 0 || (peekByte() & 0xc0) != 0x80) return replacement_character;
+                code_point = (code_point << 6) | (nextByte() & 0x3f);
+            }
+            return code_point <= Character.MAX_CODE_POINT ? code_point : replacement_character;
+        }
+
+        private int peekByte() {
+            if (index == cursor.end) {
+                cursor.next();
+                index = cursor.start;
+            }
+            return cursor.data[index] & 0xff;
+        }
+
+        private int nextByte() {
+            int b = peekByte();
+            index++;
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+}
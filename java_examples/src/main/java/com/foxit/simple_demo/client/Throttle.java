@@ -0,0 +1,347 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the client-side rate and concurrency limits per endpoint.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+// Keeps the requests of a client within what the server accepts, per endpoint ("document/compress",
+// "task", "download"): a token bucket paces requests to a configured rate, and an AIMD limit (see
+// AimdLimit) finds how many concurrent requests the endpoint sustains, backing off on throttling
+// responses, 5xx errors, timeouts and rising latency, and probing upward while calls are healthy.
+// Latency is measured from the end of the upload to the response headers, so it reflects the server's
+// queue rather than the size of the documents.
+//
+//   Throttle throttle = Throttle.builder()
+//       .rate("document/", 5, 10)      // every document/* endpoint: 5 requests per second, bursts of 10
+//       .rate("task", 50, 50)
+//       .adaptiveConcurrency(4, 1, 64) // start at 4 requests in flight per endpoint, between 1 and 64
+//       .build();
+public final class Throttle {
+
+    public static final double default_backoff_ratio = 0.5;
+    public static final double default_latency_tolerance = 2.0;
+
+    static final Throttle none = builder().build();
+
+    private static final class Rate {
+        private final double permits_per_second;
+        private final int burst;
+
+        Rate(double permits_per_second, int burst) {
+            this.permits_per_second = permits_per_second;
+            this.burst = burst;
+        }
+    }
+
+    private static final class EndpointThrottle {
+        // either is null when not configured
+        private final TokenBucket bucket;
+        private final AimdLimit limit;
+
+        EndpointThrottle(TokenBucket bucket, AimdLimit limit) {
+            this.bucket = bucket;
+            this.limit = limit;
+        }
+    }
+
+    // The right to make one request. release() must be called once the request is over, with its error.
+    final class Permit {
+        private final AimdLimit limit;
+        private final long started_nanos = System.nanoTime();
+        private volatile long sent_nanos;
+        private volatile long responded_nanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AimdLimit limit) {
+            this.limit = limit;
+        }
+
+        // Wraps an upload so the latency is counted from its last byte.
+        RequestBody timeUpload(RequestBody body) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+                @Override
+                public long contentLength() throws IOException {
+                    return body.contentLength();
+                }
+
+                @Override
+                public boolean isOneShot() {
+                    return body.isOneShot();
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    body.writeTo(sink);
+                    sent_nanos = System.nanoTime();
+                }
+            };
+        }
+
+        // Marks the arrival of the response headers.
+        void responded() {
+            responded_nanos = System.nanoTime();
+        }
+
+        void release(Throwable error) {
+            if (!released.compareAndSet(false, true)) return;
+            AimdLimit.Outcome outcome = classify(error);
+            if (outcome == AimdLimit.Outcome.dropped) dropped.increment();
+            if (limit != null) limit.release(outcome, getLatencyNanos());
+        }
+
+        // From the end of the upload to the response headers, negative when the response never came.
+        long getLatencyNanos() {
+            return responded_nanos == 0 ? -1 : responded_nanos - Math.max(started_nanos, sent_nanos);
+        }
+    }
+
+    // searched from the end, where a longer prefix of an endpoint sorts after the shorter ones
+    private final TreeMap<String, Rate> rates;
+    private final int initial_limit;
+    private final int min_limit;
+    private final int max_limit;
+    private final double backoff_ratio;
+    private final double latency_tolerance;
+    private final Map<String, EndpointThrottle> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private Throttle(Builder builder) {
+        this.rates = new TreeMap<>(builder.rates);
+        this.initial_limit = builder.initial_limit;
+        this.min_limit = builder.min_limit;
+        this.max_limit = builder.max_limit;
+        this.backoff_ratio = builder.backoff_ratio;
+        this.latency_tolerance = builder.latency_tolerance;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Waits for the rate and the concurrency limit of the endpoint, no longer than the job may. A request
+    // that stops waiting for its token gives it back.
+    Permit acquire(String endpoint, Job job) throws IOException {
+        EndpointThrottle throttle = endpoint(endpoint);
+        long delay = throttle.bucket == null ? 0 : throttle.bucket.reserve();
+        if (delay > 0) {
+            delayed.increment();
+            try {
+                job.sleepNanos(delay, endpoint);
+                job.check(endpoint);
+            } catch (IOException e) {
+                throttle.bucket.refund();
+                throw e;
+            } catch (InterruptedException e) {
+                throttle.bucket.refund();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit of " + endpoint);
+            }
+        }
+        if (throttle.limit != null) throttle.limit.acquireBlocking(job, endpoint);
+        return new Permit(throttle.limit);
+    }
+
+    // Waits without holding a thread: a delayed request is started by the shared TimerWheel. Cancelling the
+    // job or reaching its deadline fails the wait and hands its token or place in the queue to the next
+    // request.
+    CompletableFuture<Permit> acquireAsync(String endpoint, Job job) {
+        EndpointThrottle throttle = endpoint(endpoint);
+        long delay = throttle.bucket == null ? 0 : throttle.bucket.reserve();
+        CompletableFuture<Void> paced;
+        if (delay <= 0) {
+            paced = CompletableFuture.completedFuture(null);
+        } else if (TimeUnit.NANOSECONDS.toMillis(delay) >= job.remainingMiliseconds()) {
+            throttle.bucket.refund();
+            return failed(job.exceeded(endpoint));
+        } else {
+            delayed.increment();
+            CompletableFuture<Void> timer = new CompletableFuture<>();
+            TimerWheel.Timeout timeout = TimerWheel.shared().schedule(() -> timer.complete(null), delay,
+                                                                      TimeUnit.NANOSECONDS);
+            CancellationToken.Registration registration = job.onCancel(() -> {
+                if (job.failCancelled(timer, endpoint)) {
+                    timeout.cancel();
+                    throttle.bucket.refund();
+                }
+            });
+            timer.whenComplete((ignored, error) -> registration.remove());
+            paced = timer;
+        }
+        if (throttle.limit == null) return paced.thenApply(ignored -> new Permit(null));
+        return paced.thenCompose(ignored -> acquireLimit(throttle.limit, endpoint, job))
+                    .thenApply(ignored -> new Permit(throttle.limit));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    // Leaves the queue once the job is cancelled or its deadline passes.
+    private static CompletableFuture<Void> acquireLimit(AimdLimit limit, String endpoint, Job job) {
+        CompletableFuture<Void> permit = limit.acquire();
+        if (permit.isDone()) return permit;
+        CompletableFuture<Void> granted = new CompletableFuture<>();
+        CancellationToken.Registration registration = job.onCancel(() -> {
+            if (limit.withdraw(permit)) job.failCancelled(granted, endpoint);
+        });
+        long remaining = job.remainingMiliseconds();
+        TimerWheel.Timeout deadline = remaining == Long.MAX_VALUE ? null : TimerWheel.shared().schedule(() -> {
+            if (limit.withdraw(permit)) granted.completeExceptionally(job.exceeded(endpoint));
+        }, remaining, TimeUnit.MILLISECONDS);
+        permit.whenComplete((ignored, error) -> {
+            registration.remove();
+            if (deadline != null) deadline.cancel();
+            if (error == null) granted.complete(null);
+        });
+        return granted;
+    }
+
+    // The concurrency limit the endpoint is currently held to, or 0 when there is none.
+    public int getConcurrencyLimit(String endpoint) {
+        EndpointThrottle throttle = endpoints.get(endpoint);
+        return throttle == null || throttle.limit == null ? 0 : throttle.limit.getLimit();
+    }
+
+    // Requests that waited for a token.
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    // Requests that were throttled, failed with a 5xx or got no answer.
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format("delayed=%d dropped=%d", getDelayedCount(),
+                                                                getDroppedCount()));
+        for (Map.Entry<String, EndpointThrottle> entry : new TreeMap<>(endpoints).entrySet()) {
+            AimdLimit limit = entry.getValue().limit;
+            if (limit != null) {
+                summary.append(String.format(" %s=%d/%d+%d", entry.getKey(), limit.getInFlight(), limit.getLimit(),
+                                             limit.getWaiting()));
+            }
+        }
+        return summary.toString();
+    }
+
+    private EndpointThrottle endpoint(String endpoint) {
+        EndpointThrottle throttle = endpoints.get(endpoint);
+        if (throttle != null) return throttle;
+        return endpoints.computeIfAbsent(endpoint, ignored -> {
+            Rate rate = rateOf(endpoint);
+            return new EndpointThrottle(rate == null ? null : new TokenBucket(rate.permits_per_second, rate.burst),
+                                        initial_limit == 0 ? null : new AimdLimit(initial_limit, min_limit, max_limit,
+                                                                                  backoff_ratio, latency_tolerance));
+        });
+    }
+
+    private Rate rateOf(String endpoint) {
+        for (Map.Entry<String, Rate> rate : rates.descendingMap().entrySet()) {
+            if (endpoint.startsWith(rate.getKey())) return rate.getValue();
+        }
+        return null;
+    }
+
+    // Throttling and server errors mean overload, as does a request that timed out; other API errors
+    // are answers, given promptly.
+    static AimdLimit.Outcome classify(Throwable error) {
+        error = TaskEngine.unwrap(error);
+        if (error == null) return AimdLimit.Outcome.success;
+        if (error instanceof RestException) {
+            int http_code = ((RestException) error).getHttpCode();
+            return http_code == 429 || http_code >= 500 ? AimdLimit.Outcome.dropped : AimdLimit.Outcome.success;
+        }
+        if (error instanceof SocketTimeoutException) return AimdLimit.Outcome.dropped;
+        if (error instanceof InterruptedIOException) return AimdLimit.Outcome.ignored;
+        if (error instanceof IOException) {
+            // OkHttp reports a cancelled call as an IOException with this message
+            return "Canceled".equals(error.getMessage()) ? AimdLimit.Outcome.ignored : AimdLimit.Outcome.dropped;
+        }
+        return AimdLimit.Outcome.ignored;
+    }
+
+    public static final class Builder {
+        private final Map<String, Rate> rates = new TreeMap<>();
+        private int initial_limit;
+        private int min_limit;
+        private int max_limit;
+        private double backoff_ratio = default_backoff_ratio;
+        private double latency_tolerance = default_latency_tolerance;
+
+        private Builder() {
+        }
+
+        // Paces every endpoint starting with endpoint_prefix; the longest matching prefix applies.
+        // Endpoints without a rate are not paced.
+        public Builder rate(String endpoint_prefix, double permits_per_second, int burst) {
+            if (permits_per_second <= 0) throw new IllegalArgumentException("permits_per_second must be positive");
+            if (burst <= 0) throw new IllegalArgumentException("burst must be positive");
+            rates.put(endpoint_prefix, new Rate(permits_per_second, burst));
+            return this;
+        }
+
+        // Limits the requests in flight to each endpoint, starting at initial_limit and adapting between
+        // min_limit and max_limit. Off by default.
+        public Builder adaptiveConcurrency(int initial_limit, int min_limit, int max_limit) {
+            if (min_limit <= 0 || min_limit > initial_limit || initial_limit > max_limit) {
+                throw new IllegalArgumentException("Expected 0 < min_limit <= initial_limit <= max_limit");
+            }
+            this.initial_limit = initial_limit;
+            this.min_limit = min_limit;
+            this.max_limit = max_limit;
+            return this;
+        }
+
+        // The factor the limit is multiplied by when a request is throttled or fails, 0.5 by default.
+        public Builder backoffRatio(double backoff_ratio) {
+            if (backoff_ratio <= 0 || backoff_ratio >= 1) {
+                throw new IllegalArgumentException("backoff_ratio must be in (0, 1)");
+            }
+            this.backoff_ratio = backoff_ratio;
+            return this;
+        }
+
+        // How far recent latency may rise above its long-run average before the limit is lowered, 2 by default.
+        public Builder latencyTolerance(double latency_tolerance) {
+            if (latency_tolerance <= 1) throw new IllegalArgumentException("latency_tolerance must be above 1");
+            this.latency_tolerance = latency_tolerance;
+            return this;
+        }
+
+        public Throttle build() {
+            return new Throttle(this);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the policy that sets the deadline of every call and job.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+// How long each call may take, by its kind, instead of one fixed timeout for all of them:
+//   status   - a short fixed timeout; the answer is small and a slow one is better tried again
+//   upload   - base + slack * size / throughput, so a large document gets the time it needs
+//   download - base to the response headers, then base + slack * Content-Length / throughput for the body
+// Throughput is measured on the transfers of at least 256 KiB seen so far, one estimate per direction,
+// and assumed until a few have been seen.
+//
+// A job, one document from submission to downloaded result, also has an overall deadline that bounds
+// every call in it, the retries and the polling. The transport's connect, read and write timeouts still
+// apply on top of these; they catch a connection that stops making progress.
+public final class TimeoutPolicy {
+
+    public static final long default_status_timeout_in_miliseconds = 10000;
+    public static final long default_transfer_base_in_miliseconds = 30000;
+    public static final double default_slack = 4;
+    public static final long default_assumed_bytes_per_second = 1L << 20;
+    public static final long default_max_transfer_in_miliseconds = TimeUnit.HOURS.toMillis(2);
+    public static final long default_job_timeout_in_miliseconds = TimeUnit.HOURS.toMillis(1);
+
+    // transfers smaller than this mostly measure latency, not throughput
+    private static final long min_sample_bytes = 256 * 1024;
+    private static final int min_samples = 5;
+    private static final double smoothing = 0.2;
+
+    // No call or job deadlines; calls are bounded by the transport's timeouts only.
+    public static final TimeoutPolicy none = builder().statusTimeout(0).transferTimeout(0, 0).jobTimeout(0).build();
+
+    private final long status_timeout_in_miliseconds;
+    private final long transfer_base_in_miliseconds;
+    private final double slack;
+    private final long assumed_bytes_per_second;
+    private final long max_transfer_in_miliseconds;
+    private final long job_timeout_in_miliseconds;
+    private final Throughput upload_throughput = new Throughput();
+    private final Throughput download_throughput = new Throughput();
+
+    private TimeoutPolicy(Builder builder) {
+        this.status_timeout_in_miliseconds = builder.status_timeout_in_miliseconds;
+        this.transfer_base_in_miliseconds = builder.transfer_base_in_miliseconds;
+        this.slack = builder.slack;
+        this.assumed_bytes_per_second = builder.assumed_bytes_per_second;
+        this.max_transfer_in_miliseconds = builder.max_transfer_in_miliseconds;
+        this.job_timeout_in_miliseconds = builder.job_timeout_in_miliseconds;
+    }
+
+    // A new policy with the default settings; each keeps its own throughput estimates.
+    public static TimeoutPolicy defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // The timeouts below are 0 when the call has none.
+
+    public long getStatusTimeout() {
+        return status_timeout_in_miliseconds;
+    }
+
+    // For uploading size bytes and getting the answer, size -1 when unknown.
+    public long getUploadTimeout(long size) {
+        if (size < 0 && transfer_base_in_miliseconds > 0) return max_transfer_in_miliseconds;
+        return transferTimeout(size, upload_throughput);
+    }
+
+    // To the response headers when size is -1, or for the rest of a body of size bytes.
+    public long getDownloadTimeout(long size) {
+        return transferTimeout(size, download_throughput);
+    }
+
+    public long getJobTimeout() {
+        return job_timeout_in_miliseconds;
+    }
+
+    // Bytes per second, or 0 while too few transfers were seen.
+    public long getUploadThroughput() {
+        return upload_throughput.estimate();
+    }
+
+    public long getDownloadThroughput() {
+        return download_throughput.estimate();
+    }
+
+    Job newJob(CancellationToken caller) {
+        return Job.start(job_timeout_in_miliseconds, caller);
+    }
+
+    private long transferTimeout(long size, Throughput throughput) {
+        if (transfer_base_in_miliseconds <= 0) return 0;
+        if (size <= 0) return transfer_base_in_miliseconds;
+        long bytes_per_second = throughput.estimate();
+        if (bytes_per_second <= 0) bytes_per_second = assumed_bytes_per_second;
+        double transfer = slack * size * 1000 / bytes_per_second;
+        return (long) Math.min(max_transfer_in_miliseconds, transfer_base_in_miliseconds + transfer);
+    }
+
+    // Wraps an upload to measure how fast it is written.
+    RequestBody measureUpload(RequestBody body) {
+        long size;
+        try {
+            size = body.contentLength();
+        } catch (IOException e) {
+            return body;
+        }
+        if (transfer_base_in_miliseconds <= 0 || size < min_sample_bytes) return body;
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return body.contentLength();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                long started_nanos = System.nanoTime();
+                body.writeTo(sink);
+                sink.flush();
+                upload_throughput.record(size, System.nanoTime() - started_nanos);
+            }
+        };
+    }
+
+    void recordDownload(long bytes, long nanos) {
+        if (transfer_base_in_miliseconds > 0 && bytes >= min_sample_bytes) download_throughput.record(bytes, nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("status=%d ms transfer=%d ms+%.1fx job=%d ms up=%d B/s down=%d B/s",
+                             status_timeout_in_miliseconds, transfer_base_in_miliseconds, slack,
+                             job_timeout_in_miliseconds, getUploadThroughput(), getDownloadThroughput());
+    }
+
+    // Exponentially weighted average of the bytes per second of recent transfers.
+    private static final class Throughput {
+        private int samples;
+        private double bytes_per_second;
+
+        synchronized void record(long bytes, long nanos) {
+            if (nanos <= 0) return;
+            double sample = bytes * 1e9 / nanos;
+            bytes_per_second = samples == 0 ? sample : bytes_per_second + smoothing * (sample - bytes_per_second);
+            samples++;
+        }
+
+        synchronized long estimate() {
+            return samples < min_samples ? 0 : (long) bytes_per_second;
+        }
+    }
+
+    public static final class Builder {
+        private long status_timeout_in_miliseconds = default_status_timeout_in_miliseconds;
+        private long transfer_base_in_miliseconds = default_transfer_base_in_miliseconds;
+        private double slack = default_slack;
+        private long assumed_bytes_per_second = default_assumed_bytes_per_second;
+        private long max_transfer_in_miliseconds = default_max_transfer_in_miliseconds;
+        private long job_timeout_in_miliseconds = default_job_timeout_in_miliseconds;
+
+        private Builder() {
+        }
+
+        // Of each /task call, 0 for none.
+        public Builder statusTimeout(long status_timeout_in_miliseconds) {
+            if (status_timeout_in_miliseconds < 0) throw new IllegalArgumentException("timeout must not be negative");
+            this.status_timeout_in_miliseconds = status_timeout_in_miliseconds;
+            return this;
+        }
+
+        // The time every upload and download gets whatever its size, 0 for no transfer timeouts, and how many
+        // times longer than the estimated transfer time it may take on top of that.
+        public Builder transferTimeout(long base_in_miliseconds, double slack) {
+            if (base_in_miliseconds < 0 || slack < 0) throw new IllegalArgumentException("must not be negative");
+            this.transfer_base_in_miliseconds = base_in_miliseconds;
+            this.slack = slack;
+            return this;
+        }
+
+        // Throughput assumed until enough transfers were measured.
+        public Builder assumedThroughput(long bytes_per_second) {
+            if (bytes_per_second <= 0) throw new IllegalArgumentException("bytes_per_second must be positive");
+            this.assumed_bytes_per_second = bytes_per_second;
+            return this;
+        }
+
+        public Builder maxTransferTimeout(long max_transfer_in_miliseconds) {
+            if (max_transfer_in_miliseconds <= 0) throw new IllegalArgumentException("timeout must be positive");
+            this.max_transfer_in_miliseconds = max_transfer_in_miliseconds;
+            return this;
+        }
+
+        // Of a whole job, from submission to downloaded result, 0 for none.
+        public Builder jobTimeout(long job_timeout_in_miliseconds) {
+            if (job_timeout_in_miliseconds < 0) throw new IllegalArgumentException("timeout must not be negative");
+            this.job_timeout_in_miliseconds = job_timeout_in_miliseconds;
+            return this;
+        }
+
+        public TimeoutPolicy build() {
+            return new TimeoutPolicy(this);
+        }
+    }
+}
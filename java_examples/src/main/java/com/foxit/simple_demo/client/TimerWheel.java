@@ -0,0 +1,121 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the hashed timer wheel that schedules every asynchronous task poll.
+
+package com.foxit.simple_demo.client;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// A hashed timer wheel: scheduling and cancelling are O(1) whatever the number of pending timeouts,
+// which is what tens of thousands of polled tasks need. One daemon thread advances the wheel every
+// tick and runs the expired actions itself, so actions must not block (they only enqueue calls).
+// Timeouts fire up to one tick late.
+final class TimerWheel {
+
+    private static final TimerWheel shared = new TimerWheel(10, TimeUnit.MILLISECONDS, 512);
+
+    final class Timeout {
+        private final Runnable action;
+        private final long deadline_nanos;
+        private long remaining_rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable action, long deadline_nanos) {
+            this.action = action;
+            this.deadline_nanos = deadline_nanos;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    // Holds a slot's timeouts, as an array of a generic type can only be created unchecked.
+    private final class Bucket {
+        private final Queue<Timeout> timeouts = new ArrayDeque<>();
+    }
+
+    private final long tick_nanos;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long start_nanos = System.nanoTime();
+
+    private TimerWheel(long tick_duration, TimeUnit unit, int wheel_size) {
+        if (Integer.bitCount(wheel_size) != 1) throw new IllegalArgumentException("wheel_size must be a power of 2");
+        this.tick_nanos = unit.toNanos(tick_duration);
+        this.mask = wheel_size - 1;
+        this.buckets = new Bucket[wheel_size];
+        for (int i = 0; i < wheel_size; i++) {
+            buckets[i] = new Bucket();
+        }
+        Thread worker = new Thread(this::run, "foxit-timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    static TimerWheel shared() {
+        return shared;
+    }
+
+    Timeout schedule(Runnable action, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(action, System.nanoTime() - start_nanos + unit.toNanos(Math.max(0, delay)));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        long tick = 0;
+        while (true) {
+            long tick_deadline = (tick + 1) * tick_nanos;
+            long sleep_nanos;
+            while ((sleep_nanos = tick_deadline - (System.nanoTime() - start_nanos)) > 0) {
+                LockSupport.parkNanos(sleep_nanos);
+            }
+            transferPending(tick);
+            expire(buckets[(int) (tick & mask)].timeouts, tick_deadline);
+            tick++;
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) continue;
+            long due_tick = Math.max(timeout.deadline_nanos / tick_nanos, tick);
+            timeout.remaining_rounds = (due_tick - tick) / buckets.length;
+            buckets[(int) (due_tick & mask)].timeouts.add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket, long tick_deadline) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remaining_rounds <= 0 && timeout.deadline_nanos <= tick_deadline) {
+                iterator.remove();
+                try {
+                    timeout.action.run();
+                } catch (RuntimeException e) {
+                    // an action failing must not stop the wheel for every other task
+                }
+            } else {
+                timeout.remaining_rounds--;
+            }
+        }
+    }
+}
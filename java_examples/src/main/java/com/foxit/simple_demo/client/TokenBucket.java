@@ -0,0 +1,49 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the token bucket that paces requests to one endpoint.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.TimeUnit;
+
+// Allows permits_per_second requests on average and bursts of up to burst requests. A request that
+// finds the bucket empty reserves the next token anyway and is told how long to wait for it, so
+// waiting callers are served in the order they arrived and never spin.
+final class TokenBucket {
+
+    private final double permits_per_nano;
+    private final double burst;
+    // guarded by this; negative when tokens are reserved ahead
+    private double tokens;
+    private long refilled_at = System.nanoTime();
+
+    TokenBucket(double permits_per_second, int burst) {
+        if (permits_per_second <= 0) throw new IllegalArgumentException("permits_per_second must be positive");
+        if (burst <= 0) throw new IllegalArgumentException("burst must be positive");
+        this.permits_per_nano = permits_per_second / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    // Takes a token and returns how many nanoseconds to wait before using it, 0 when one was available.
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilled_at) * permits_per_nano);
+        refilled_at = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permits_per_nano);
+    }
+
+    // Gives back a token reserved by a request that was never sent, e.g. one cancelled while it waited,
+    // so the requests reserved after it are not paced behind it.
+    synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the process-wide http transport shared by every Foxit Cloud API client.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// All clients in one JVM share a single connection pool and dispatcher, so pool sizing,
+// keep-alive and dispatcher limits are tuned here instead of per operation. The settings come from
+// a TransportProfile: the defaults, or the one given to configureShared before the first use.
+public final class Transport {
+
+    private static TransportProfile shared_profile = TransportProfile.defaults();
+    private static volatile OkHttpClient shared;
+
+    private Transport() {
+    }
+
+    public static OkHttpClient shared() {
+        OkHttpClient client = shared;
+        if (client == null) {
+            synchronized (Transport.class) {
+                client = shared;
+                if (client == null) {
+                    client = shared = create(shared_profile);
+                }
+            }
+        }
+        return client;
+    }
+
+    public static synchronized TransportProfile sharedProfile() {
+        return shared_profile;
+    }
+
+    // Must be called before the shared transport is first used, so there is never a second pool.
+    public static synchronized void configureShared(TransportProfile profile) {
+        if (shared != null) throw new IllegalStateException("The shared transport is already in use");
+        shared_profile = profile;
+    }
+
+    // A separate transport with its own pool and dispatcher.
+    public static OkHttpClient create(TransportProfile profile) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(profile.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(profile.getMaxRequestsPerHost());
+        long timeout_in_miliseconds = profile.getTimeoutInMiliseconds();
+        return new OkHttpClient().newBuilder()
+            .connectionPool(new ConnectionPool(profile.getMaxIdleConnections(), profile.getKeepAliveInMiliseconds(),
+                                               TimeUnit.MILLISECONDS))
+            .dispatcher(dispatcher)
+            .protocols(profile.prefersHttp2() ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                                              : Collections.singletonList(Protocol.HTTP_1_1))
+            .pingInterval(profile.getPingIntervalInMiliseconds(), TimeUnit.MILLISECONDS)
+            .connectTimeout(timeout_in_miliseconds, TimeUnit.MILLISECONDS)
+            .writeTimeout(timeout_in_miliseconds, TimeUnit.MILLISECONDS)
+            .readTimeout(timeout_in_miliseconds, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    // Opens up to the given number of connections to the host of the url by sending concurrent HEAD
+    // requests to it: the status does not matter, only that the handshakes are done and the connections are
+    // back in the pool. Completes with the number of distinct connections that answered, including ones
+    // already pooled.
+    //
+    // Over HTTP/2 every request multiplexes onto one connection, so when the client may negotiate it, one
+    // request is sent first and the others only if it was answered over HTTP/1.1. More than one connection
+    // is only ever opened over HTTP/1.1.
+    public static CompletableFuture<Integer> prewarm(OkHttpClient client, HttpUrl url, int connections) {
+        CompletableFuture<Integer> warmed = new CompletableFuture<>();
+        if (connections <= 0) {
+            warmed.complete(0);
+            return warmed;
+        }
+        Set<Connection> answered = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        // shares the pool and dispatcher of client
+        OkHttpClient counting = client.newBuilder().addNetworkInterceptor(chain -> {
+            Response response = chain.proceed(chain.request());
+            answered.add(chain.connection());
+            return response;
+        }).build();
+        Request request = new Request.Builder().url(url).head().build();
+        if (connections == 1 || !client.protocols().contains(Protocol.HTTP_2)) {
+            sendHeads(counting, request, connections, answered, warmed);
+            return warmed;
+        }
+        counting.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                if (response.protocol() == Protocol.HTTP_2) {
+                    warmed.complete(answered.size());
+                } else {
+                    // one of them takes the connection of the first, back in the pool
+                    sendHeads(counting, request, connections, answered, warmed);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                warmed.complete(answered.size());
+            }
+        });
+        return warmed;
+    }
+
+    private static void sendHeads(OkHttpClient client, Request request, int count, Set<Connection> answered,
+                                  CompletableFuture<Integer> warmed) {
+        AtomicInteger remaining = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    done();
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    done();
+                }
+
+                private void done() {
+                    if (remaining.decrementAndGet() == 0) warmed.complete(answered.size());
+                }
+            });
+        }
+    }
+
+    // Re-warms the connections every interval while the client has no call running, until cancelled.
+    static KeepWarm keepWarm(OkHttpClient client, HttpUrl url, int connections, long interval_in_miliseconds) {
+        KeepWarm keep_warm = new KeepWarm(client, url, connections, interval_in_miliseconds);
+        keep_warm.schedule();
+        return keep_warm;
+    }
+
+    static final class KeepWarm {
+        private final OkHttpClient client;
+        private final HttpUrl url;
+        private final int connections;
+        private final long interval_in_miliseconds;
+        private volatile boolean cancelled;
+        private volatile TimerWheel.Timeout timeout;
+
+        private KeepWarm(OkHttpClient client, HttpUrl url, int connections, long interval_in_miliseconds) {
+            this.client = client;
+            this.url = url;
+            this.connections = Math.max(1, connections);
+            this.interval_in_miliseconds = interval_in_miliseconds;
+        }
+
+        private void schedule() {
+            if (cancelled) return;
+            timeout = TimerWheel.shared().schedule(this::run, interval_in_miliseconds, TimeUnit.MILLISECONDS);
+        }
+
+        private void run() {
+            if (cancelled) return;
+            // calls in flight keep their connections busy and alive anyway
+            if (client.dispatcher().runningCallsCount() == 0) {
+                prewarm(client, url, connections).whenComplete((warmed, error) -> schedule());
+            } else {
+                schedule();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            TimerWheel.Timeout current = timeout;
+            if (current != null) current.cancel();
+        }
+    }
+}
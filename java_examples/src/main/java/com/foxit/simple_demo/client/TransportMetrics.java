@@ -0,0 +1,115 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the connection reuse and response leak counters of an http transport.
+
+package com.foxit.simple_demo.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+// Counts what the connection pool does with the calls of a transport. OkHttp ends a call only when its
+// response is closed (or fully read), so a call that started but never ended, or failed, is a response
+// somebody forgot to release: it pins its connection until the garbage collector finds it. Once the
+// transport is quiet, getUnreleasedCalls() must be 0.
+//
+// A call that opens a connection instead of taking one from the pool pays the TCP and TLS handshakes.
+// Once the pool holds as many connections as calls run at once, every further call should reuse one.
+public final class TransportMetrics extends EventListener {
+
+    private final LongAdder calls_started = new LongAdder();
+    private final LongAdder calls_ended = new LongAdder();
+    private final LongAdder calls_failed = new LongAdder();
+    private final LongAdder connections_opened = new LongAdder();
+    private final LongAdder connections_acquired = new LongAdder();
+
+    // A view of the client sharing its pool and dispatcher, whose calls are counted here.
+    public OkHttpClient attachTo(OkHttpClient client) {
+        return client.newBuilder().eventListener(this).build();
+    }
+
+    @Override
+    public void callStart(Call call) {
+        calls_started.increment();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        connections_opened.increment();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        connections_acquired.increment();
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        calls_ended.increment();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException e) {
+        calls_failed.increment();
+    }
+
+    public long getCallsStarted() {
+        return calls_started.sum();
+    }
+
+    // Calls in flight are counted too, so this is a leak only once the transport is quiet.
+    public long getUnreleasedCalls() {
+        return calls_started.sum() - calls_ended.sum() - calls_failed.sum();
+    }
+
+    public long getConnectionsOpened() {
+        return connections_opened.sum();
+    }
+
+    public long getConnectionsAcquired() {
+        return connections_acquired.sum();
+    }
+
+    // Share of connection acquisitions served from the pool, without a handshake.
+    public double getConnectionReuseRatio() {
+        long acquired = getConnectionsAcquired();
+        return acquired == 0 ? 0.0 : (acquired - getConnectionsOpened()) / (double) acquired;
+    }
+
+    // For tests and benchmarks, once every call has completed.
+    public void checkReleased() {
+        long unreleased = getUnreleasedCalls();
+        if (unreleased != 0) throw new IllegalStateException(unreleased + " responses were never closed");
+    }
+
+    // As checkReleased(), but gives calls that were cancelled or timed out up to timeout_in_miliseconds
+    // to report their failure, which OkHttp does from the thread that ran them.
+    public void awaitReleased(long timeout_in_miliseconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout_in_miliseconds);
+        while (getUnreleasedCalls() != 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        checkReleased();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("calls=%d unreleased=%d connections-opened=%d reuse=%.2f%%", getCallsStarted(),
+                             getUnreleasedCalls(), getConnectionsOpened(), getConnectionReuseRatio() * 100);
+    }
+}
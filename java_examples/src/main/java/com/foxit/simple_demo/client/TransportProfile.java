@@ -0,0 +1,176 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the tunable settings of the http transport.
+
+package com.foxit.simple_demo.client;
+
+import java.util.concurrent.TimeUnit;
+
+// Every Foxit Cloud API call goes to one host, so the per-host dispatcher limit is what caps parallel
+// calls: the defaults let up to 64 run at once instead of OkHttp's 5. With HTTP/2 (negotiated over TLS)
+// they are multiplexed over a single connection; on HTTP/1.1 each needs its own, hence the larger pool.
+//
+// Pre-warming opens connections, with their TCP and TLS handshakes, as soon as a client is built, so the
+// first real request does not pay for them. It is off by default, as it sends a request to the server
+// for every client built, also when the client ends up making a single call. Keeping warm repeats that
+// while the client is idle, before the server or a NAT in between drops the connections, and HTTP/2 pings
+// keep multiplexed ones alive.
+public final class TransportProfile {
+
+    private static final TransportProfile defaults = builder().build();
+
+    private final int max_idle_connections;
+    private final long keep_alive_in_miliseconds;
+    private final int max_requests;
+    private final int max_requests_per_host;
+    private final boolean prefer_http2;
+    private final long ping_interval_in_miliseconds;
+    private final long timeout_in_miliseconds;
+    private final int prewarm_connections;
+    private final long keep_warm_interval_in_miliseconds;
+
+    private TransportProfile(Builder builder) {
+        this.max_idle_connections = builder.max_idle_connections;
+        this.keep_alive_in_miliseconds = builder.keep_alive_in_miliseconds;
+        this.max_requests = builder.max_requests;
+        this.max_requests_per_host = builder.max_requests_per_host;
+        this.prefer_http2 = builder.prefer_http2;
+        this.ping_interval_in_miliseconds = builder.ping_interval_in_miliseconds;
+        this.timeout_in_miliseconds = builder.timeout_in_miliseconds;
+        this.prewarm_connections = builder.prewarm_connections;
+        this.keep_warm_interval_in_miliseconds = builder.keep_warm_interval_in_miliseconds;
+    }
+
+    public static TransportProfile defaults() {
+        return defaults;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxIdleConnections() {
+        return max_idle_connections;
+    }
+
+    public long getKeepAliveInMiliseconds() {
+        return keep_alive_in_miliseconds;
+    }
+
+    public int getMaxRequests() {
+        return max_requests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return max_requests_per_host;
+    }
+
+    public boolean prefersHttp2() {
+        return prefer_http2;
+    }
+
+    public long getPingIntervalInMiliseconds() {
+        return ping_interval_in_miliseconds;
+    }
+
+    public long getTimeoutInMiliseconds() {
+        return timeout_in_miliseconds;
+    }
+
+    public int getPrewarmConnections() {
+        return prewarm_connections;
+    }
+
+    public long getKeepWarmIntervalInMiliseconds() {
+        return keep_warm_interval_in_miliseconds;
+    }
+
+    public static final class Builder {
+        private int max_idle_connections = 32;
+        private long keep_alive_in_miliseconds = TimeUnit.MINUTES.toMillis(5);
+        private int max_requests = 128;
+        private int max_requests_per_host = 64;
+        private boolean prefer_http2 = true;
+        private long ping_interval_in_miliseconds = TimeUnit.SECONDS.toMillis(30);
+        private long timeout_in_miliseconds = TimeUnit.SECONDS.toMillis(60);
+        private int prewarm_connections;
+        private long keep_warm_interval_in_miliseconds;
+
+        private Builder() {
+        }
+
+        public Builder maxIdleConnections(int max_idle_connections) {
+            this.max_idle_connections = max_idle_connections;
+            return this;
+        }
+
+        // How long an unused connection stays in the pool, at least a milisecond.
+        public Builder keepAlive(long keep_alive, TimeUnit unit) {
+            this.keep_alive_in_miliseconds = toMiliseconds(keep_alive, unit, "keep_alive");
+            if (keep_alive_in_miliseconds == 0) throw new IllegalArgumentException("keep_alive must be positive");
+            return this;
+        }
+
+        public Builder maxRequests(int max_requests) {
+            this.max_requests = max_requests;
+            return this;
+        }
+
+        public Builder maxRequestsPerHost(int max_requests_per_host) {
+            this.max_requests_per_host = max_requests_per_host;
+            return this;
+        }
+
+        // Offers HTTP/2 during the TLS handshake; when off, every call uses HTTP/1.1.
+        public Builder preferHttp2(boolean prefer_http2) {
+            this.prefer_http2 = prefer_http2;
+            return this;
+        }
+
+        // Interval of HTTP/2 pings on open connections, 0 for none.
+        public Builder pingInterval(long ping_interval, TimeUnit unit) {
+            this.ping_interval_in_miliseconds = toMiliseconds(ping_interval, unit, "ping_interval");
+            return this;
+        }
+
+        // Connect, read and write timeout of every call, 0 for none.
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeout_in_miliseconds = toMiliseconds(timeout, unit, "timeout");
+            return this;
+        }
+
+        // Connections opened when a client is built, 0 for none, the default. One is enough with HTTP/2.
+        public Builder prewarmConnections(int prewarm_connections) {
+            this.prewarm_connections = prewarm_connections;
+            return this;
+        }
+
+        // While no call is running, re-warms the connections at this interval, 0 for never. Should be
+        // shorter than the idle timeout of the server, typically about a minute.
+        public Builder keepWarmInterval(long keep_warm_interval, TimeUnit unit) {
+            this.keep_warm_interval_in_miliseconds = toMiliseconds(keep_warm_interval, unit, "keep_warm_interval");
+            return this;
+        }
+
+        public TransportProfile build() {
+            return new TransportProfile(this);
+        }
+
+        // A positive duration shorter than a milisecond would turn into 0, which means none or is refused.
+        private static long toMiliseconds(long duration, TimeUnit unit, String name) {
+            if (duration < 0) throw new IllegalArgumentException(name + " must not be negative");
+            long miliseconds = unit.toMillis(duration);
+            if (duration > 0 && miliseconds == 0) {
+                throw new IllegalArgumentException(name + " must be at least a milisecond");
+            }
+            return miliseconds;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+// Copyright (C) 2003-2024, Foxit Software Inc..
+// All Rights Reserved.
+//
+// http://www.foxitsoftware.com
+//
+// The following code is copyrighted and contains proprietary information and trade secrets of Foxit Software Inc..
+// You cannot distribute any part of Foxit Cloud API to any third party or general public,
+// unless there is a separate license agreement with Foxit Software Inc. which explicitly grants you such rights.
+//
+// This file contains the document sources that can be uploaded to Foxit Cloud API.
+
+package com.foxit.simple_demo.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+// A document to upload, with the file name reported in the multipart form.
+// None of the sources spill to a temporary file:
+//   file        - read straight into the socket buffers by Okio, no intermediate byte[]
+//   ByteBuffer  - heap, direct or mapped, written from a duplicate so the caller's position is untouched
+//   mapped      - a read-only region of a file mapped into memory, for uploading part of a large file
+//   InputStream - streamed with chunked encoding, unknown length, can only be sent once
+public abstract class UploadSource {
+
+    private final String file_name;
+
+    private UploadSource(String file_name) {
+        this.file_name = file_name;
+    }
+
+    public static UploadSource of(String file_path) {
+        return of(new File(file_path));
+    }
+
+    public static UploadSource of(File file) {
+        return new FileSource(file);
+    }
+
+    public static UploadSource of(Path path) {
+        return new FileSource(path.toFile());
+    }
+
+    public static UploadSource of(String file_name, ByteBuffer buffer) {
+        return new BufferSource(file_name, buffer);
+    }
+
+    public static UploadSource of(String file_name, InputStream input) {
+        return new StreamSource(file_name, input);
+    }
+
+    public static UploadSource mapped(Path path, long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            return new BufferSource(path.getFileName().toString(), buffer);
+        }
+    }
+
+    public String getFileName() {
+        return file_name;
+    }
+
+    // -1 when the length is not known up front.
+    public abstract long contentLength();
+
+    // Content that can only be sent once: a submission of it is never retried.
+    public boolean isOneShot() {
+        return false;
+    }
+
+    abstract RequestBody toRequestBody(MediaType media_type);
+
+    // Feeds the content to the digest without consuming it. Returns false for content that can only be
+    // read once, which therefore cannot be hashed ahead of the upload.
+    abstract boolean updateDigest(MessageDigest digest) throws IOException;
+
+    private static final class FileSource extends UploadSource {
+        private static final int digest_chunk_size = 64 * 1024;
+
+        private final File file;
+
+        FileSource(File file) {
+            super(file.getName());
+            this.file = file;
+        }
+
+        @Override
+        public long contentLength() {
+            return file.length();
+        }
+
+        @Override
+        RequestBody toRequestBody(MediaType media_type) {
+            return RequestBody.create(file, media_type);
+        }
+
+        @Override
+        boolean updateDigest(MessageDigest digest) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(digest_chunk_size);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (channel.read(chunk) != -1) {
+                    chunk.flip();
+                    digest.update(chunk);
+                    chunk.clear();
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class BufferSource extends UploadSource {
+        private static final int write_slice_size = 64 * 1024;
+
+        private final ByteBuffer buffer;
+
+        BufferSource(String file_name, ByteBuffer buffer) {
+            super(file_name);
+            this.buffer = buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        RequestBody toRequestBody(MediaType media_type) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return media_type;
+                }
+
+                @Override
+                public long contentLength() {
+                    return buffer.remaining();
+                }
+
+                // Written in slices: Okio copies a whole ByteBuffer into its buffer before emitting
+                // anything, which for a large buffer would mean a second full copy on the heap.
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    ByteBuffer view = buffer.duplicate();
+                    int end = view.limit();
+                    while (view.position() < end) {
+                        view.limit(Math.min(end, view.position() + write_slice_size));
+                        while (view.hasRemaining()) {
+                            sink.write(view);
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        boolean updateDigest(MessageDigest digest) {
+            digest.update(buffer.duplicate());
+            return true;
+        }
+    }
+
+    private static final class StreamSource extends UploadSource {
+        private final InputStream input;
+        private final AtomicBoolean consumed = new AtomicBoolean();
+
+        StreamSource(String file_name, InputStream input) {
+            super(file_name);
+            this.input = input;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        RequestBody toRequestBody(MediaType media_type) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return media_type;
+                }
+
+                @Override
+                public boolean isOneShot() {
+                    return true;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    if (!consumed.compareAndSet(false, true)) {
+                        throw new IOException("The input stream of " + getFileName() + " was already uploaded");
+                    }
+                    try (Source source = Okio.source(input)) {
+                        sink.writeAll(source);
+                    }
+                }
+            };
+        }
+
+        @Override
+        boolean updateDigest(MessageDigest digest) {
+            return false;
+        }
+    }
+}